@@ -353,6 +353,8 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
                 removeAllValueChangeListeners(item);
             }
             removeAllFilters();
+            // changes to the properties are no longer noticed
+            discardLastFilteredItemIds();
         }
     }
 
@@ -371,6 +373,8 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
             for (Item item : itemIdToItem.values()) {
                 removeValueChangeListener(item, propertyId);
             }
+            // changes to the property are no longer noticed
+            discardLastFilteredItemIds();
         }
     }
 
@@ -22,10 +22,12 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.ItemSetChangeNotifier;
 import com.vaadin.data.Item;
+import com.vaadin.data.util.ParallelExecution.RangeTask;
 import com.vaadin.data.util.filter.SimpleStringFilter;
 import com.vaadin.data.util.filter.UnsupportedFilterException;
 
@@ -125,6 +127,36 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      */
     private ItemSorter itemSorter = new DefaultItemSorter();
 
+    /**
+     * The filters used for computing {@link #lastFilteredItemIds}.
+     */
+    private Set<Filter> lastFilters = null;
+
+    /**
+     * The result of the latest filtering, kept even after the filters have
+     * been removed. If filters are only added or narrowed after this, the new
+     * result is a subset of this list and the other items need not be
+     * checked. Discarded when items are added, removed, sorted or changed.
+     */
+    private List<ITEMIDTYPE> lastFilteredItemIds = null;
+
+    /**
+     * True if the next filtering is caused only by a change in the filters,
+     * false if items might have changed.
+     */
+    private boolean onlyFiltersChanged = false;
+
+    /**
+     * The executor for sorting and filtering in parallel, or null to do it in
+     * the calling thread. Not serialized.
+     */
+    private transient ExecutorService parallelExecutor = null;
+
+    /**
+     * The minimum number of items for sorting and filtering in parallel.
+     */
+    private int parallelThreshold = 0;
+
     // Constructors
 
     /**
@@ -422,9 +454,29 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
             boolean changed = getAllItemIds().size() != getVisibleItemIds()
                     .size();
             setFilteredItemIds(null);
+            /*
+             * Keep the previous result when the filters are removed, e.g. to
+             * be replaced by a narrower filter while typing in a ComboBox.
+             */
+            if (!onlyFiltersChanged) {
+                discardLastFilteredItemIds();
+            }
+            onlyFiltersChanged = false;
             return changed;
         }
 
+        /*
+         * If only the filters have changed and the filters of the previous
+         * filtering are still in effect, possibly narrowed, it is enough to
+         * check the items that passed the previous filtering.
+         */
+        List<ITEMIDTYPE> candidateItemIds = getAllItemIds();
+        if (onlyFiltersChanged && lastFilteredItemIds != null
+                && isNarrowedBy(lastFilters, getFilters())) {
+            candidateItemIds = lastFilteredItemIds;
+        }
+        onlyFiltersChanged = false;
+
         // Reset filtered list
         List<ITEMIDTYPE> originalFilteredItemIds = getFilteredItemIds();
         boolean wasUnfiltered = false;
@@ -435,18 +487,33 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         setFilteredItemIds(new ListSet<ITEMIDTYPE>());
 
         // Filter
+        final Object[] candidates = candidateItemIds.toArray();
+        final boolean[] passes = new boolean[candidates.length];
+        ParallelExecution.run(parallelExecutor, parallelThreshold,
+                candidates.length, new RangeTask() {
+                    @Override
+                    public void run(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            passes[i] = passesFilters(candidates[i]);
+                        }
+                    }
+                });
+
         boolean equal = true;
         Iterator<ITEMIDTYPE> origIt = originalFilteredItemIds.iterator();
-        for (final Iterator<ITEMIDTYPE> i = getAllItemIds().iterator(); i
-                .hasNext();) {
-            final ITEMIDTYPE id = i.next();
-            if (passesFilters(id)) {
+        for (int i = 0; i < candidates.length; i++) {
+            if (passes[i]) {
+                @SuppressWarnings("unchecked")
+                final ITEMIDTYPE id = (ITEMIDTYPE) candidates[i];
                 // filtered list comes from the full list, can use ==
                 equal = equal && origIt.hasNext() && origIt.next() == id;
                 getFilteredItemIds().add(id);
             }
         }
 
+        lastFilters = new HashSet<Filter>(getFilters());
+        lastFilteredItemIds = getFilteredItemIds();
+
         return (wasUnfiltered && !getAllItemIds().isEmpty()) || !equal
                 || origIt.hasNext();
     }
@@ -476,6 +543,91 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         return true;
     }
 
+    /**
+     * Checks whether every item passing the new filters also passes the old
+     * filters, i.e. each old filter is among the new filters or is narrowed
+     * by one of them.
+     * 
+     * @param oldFilters
+     *            the filters of a previous filtering
+     * @param newFilters
+     *            the current filters
+     * @return true if the new filters can only exclude more items than the
+     *         old ones, false if they might include other items
+     */
+    private static boolean isNarrowedBy(Set<Filter> oldFilters,
+            Set<Filter> newFilters) {
+        for (Filter oldFilter : oldFilters) {
+            if (newFilters.contains(oldFilter)) {
+                continue;
+            }
+            boolean narrowed = false;
+            for (Filter newFilter : newFilters) {
+                if (isNarrowedBy(oldFilter, newFilter)) {
+                    narrowed = true;
+                    break;
+                }
+            }
+            if (!narrowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNarrowedBy(Filter oldFilter, Filter newFilter) {
+        if (!(oldFilter instanceof SimpleStringFilter)
+                || !(newFilter instanceof SimpleStringFilter)) {
+            return false;
+        }
+        SimpleStringFilter oldStringFilter = (SimpleStringFilter) oldFilter;
+        SimpleStringFilter newStringFilter = (SimpleStringFilter) newFilter;
+        Object propertyId = oldStringFilter.getPropertyId();
+        if (propertyId == null
+                || !propertyId.equals(newStringFilter.getPropertyId())
+                || oldStringFilter.isIgnoreCase() != newStringFilter
+                        .isIgnoreCase()
+                || oldStringFilter.isOnlyMatchPrefix() != newStringFilter
+                        .isOnlyMatchPrefix()) {
+            return false;
+        }
+        String oldString = oldStringFilter.getFilterString();
+        String newString = newStringFilter.getFilterString();
+        if (oldStringFilter.isOnlyMatchPrefix()) {
+            // "abc" only matches values that also start with "ab"
+            return newString.startsWith(oldString);
+        } else {
+            return newString.contains(oldString);
+        }
+    }
+
+    /**
+     * Forgets the result of the previous filtering so that the next filtering
+     * checks all items in the container. Should be called when items change in
+     * a way that might affect filtering without the container being
+     * re-filtered, also when the container has no filters.
+     * 
+     * @since 7.1
+     */
+    protected void discardLastFilteredItemIds() {
+        lastFilters = null;
+        lastFilteredItemIds = null;
+    }
+
+    /**
+     * Re-filters the view after the filters have been changed but the items
+     * have not. This allows narrowing down the result of the previous
+     * filtering instead of checking every item.
+     */
+    private void filterAllAfterFilterChange() {
+        onlyFiltersChanged = true;
+        try {
+            filterAll();
+        } finally {
+            onlyFiltersChanged = false;
+        }
+    }
+
     /**
      * Adds a container filter and re-filter the view.
      * 
@@ -497,7 +649,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      */
     protected void addFilter(Filter filter) throws UnsupportedFilterException {
         getFilters().add(filter);
-        filterAll();
+        filterAllAfterFilterChange();
     }
 
     /**
@@ -532,7 +684,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
             Filter f = iterator.next();
             if (f.equals(filter)) {
                 iterator.remove();
-                filterAll();
+                filterAllAfterFilterChange();
                 return;
             }
         }
@@ -549,7 +701,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
             return;
         }
         getFilters().clear();
-        filterAll();
+        filterAllAfterFilterChange();
     }
 
     /**
@@ -597,7 +749,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
             }
         }
         if (!removedFilters.isEmpty()) {
-            filterAll();
+            filterAllAfterFilterChange();
             return removedFilters;
         }
         return Collections.emptyList();
@@ -649,6 +801,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
                 ascending);
 
         // Perform the actual sort
+        discardLastFilteredItemIds();
         doSort();
 
         // Post sort updates
@@ -666,10 +819,75 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      * operation. Typically this method calls
      * <code>Collections.sort(aCollection, getItemSorter())</code> on all arrays
      * (containing item ids) that need to be sorted.
+     * <p>
+     * With the default item sorter, the property values of each item are only
+     * fetched once, see
+     * {@link DefaultItemSorter#sort(List, ExecutorService, int)}.
      * 
      */
     protected void doSort() {
-        Collections.sort(getAllItemIds(), getItemSorter());
+        ItemSorter sorter = getItemSorter();
+        if (sorter.getClass() == DefaultItemSorter.class) {
+            // Subclasses might override the comparison of items
+            ((DefaultItemSorter) sorter).sort(getAllItemIds(),
+                    parallelExecutor, parallelThreshold);
+        } else {
+            Collections.sort(getAllItemIds(), sorter);
+        }
+    }
+
+    /**
+     * Sets an executor for sorting and filtering large containers in parallel.
+     * When the container has at least <code>threshold</code> items, the
+     * property values used for sorting are fetched and the filters are
+     * evaluated for different parts of the container in separate tasks run by
+     * the executor. The calling thread waits for the tasks to complete.
+     * <p>
+     * The item properties and filters must be safe to use from multiple
+     * threads. The tasks are not run with the session lock or any other
+     * thread local state of the calling thread.
+     * <p>
+     * The executor is not serialized with the container, so after
+     * deserialization sorting and filtering is done in the calling thread
+     * until a new executor is set.
+     * 
+     * @param executor
+     *            the executor to use, or <code>null</code> to always sort and
+     *            filter in the calling thread
+     * @param threshold
+     *            the minimum number of items for sorting and filtering in
+     *            parallel
+     * @since 7.1
+     */
+    public void setParallelExecutor(ExecutorService executor, int threshold) {
+        parallelExecutor = executor;
+        parallelThreshold = threshold;
+    }
+
+    /**
+     * Gets the executor used for sorting and filtering large containers in
+     * parallel.
+     * 
+     * @see #setParallelExecutor(ExecutorService, int)
+     * 
+     * @return the executor or <code>null</code> if sorting and filtering is
+     *         always done in the calling thread
+     * @since 7.1
+     */
+    public ExecutorService getParallelExecutor() {
+        return parallelExecutor;
+    }
+
+    /**
+     * Gets the minimum number of items for sorting and filtering in parallel.
+     * 
+     * @see #setParallelExecutor(ExecutorService, int)
+     * 
+     * @return the threshold
+     * @since 7.1
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
     }
 
     /**
@@ -698,6 +916,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      * change notification.
      */
     protected void internalRemoveAllItems() {
+        discardLastFilteredItemIds();
         // Removes all Items
         getAllItemIds().clear();
         if (isFiltered()) {
@@ -722,6 +941,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
             return false;
         }
 
+        discardLastFilteredItemIds();
         boolean result = getAllItemIds().remove(itemId);
         if (result && isFiltered()) {
             getFilteredItemIds().remove(itemId);
@@ -769,6 +989,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
 
         // "filteredList" will be updated in filterAll() which should be invoked
         // by the caller after calling this method.
+        discardLastFilteredItemIds();
         getAllItemIds().add(position, itemId);
         registerNewItem(position, itemId, item);
 
@@ -0,0 +1,1193 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.data.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Item;
+import com.vaadin.data.Property;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+import com.vaadin.data.util.filter.UnsupportedFilterException;
+
+/**
+ * An implementation of the <code>{@link Container.Indexed}</code> interface
+ * that stores the property values in columns instead of one map per item.
+ * <p>
+ * Properties of the types <code>int</code>, <code>long</code>,
+ * <code>double</code> and <code>boolean</code> or their wrapper classes are
+ * stored in primitive arrays, other properties in object arrays. Each item is
+ * assigned a row in the columns, and the {@link Item} and {@link Property}
+ * instances returned by the container are lightweight views to that row. This
+ * uses a fraction of the memory {@link IndexedContainer} needs for large
+ * amounts of data, where every value is boxed and stored in a hash table of
+ * its own item.
+ * </p>
+ * 
+ * Features:
+ * <ul>
+ * <li> {@link Container.Indexed}
+ * <li> {@link Container.Ordered}
+ * <li> {@link Container.Sortable}
+ * <li> {@link Container.Filterable}
+ * <li>Sends all needed events on content changes.
+ * </ul>
+ * 
+ * @see IndexedContainer
+ * 
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+@SuppressWarnings("serial")
+public class ColumnarContainer extends
+        AbstractInMemoryContainer<Object, Object, Item> implements
+        Container.PropertySetChangeNotifier, Property.ValueChangeNotifier,
+        Container.Sortable, Container.Filterable, Container.SimpleFilterable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /* Internal structure */
+
+    /**
+     * List of ordered Property IDs.
+     */
+    private ArrayList<Object> propertyIds = new ArrayList<Object>();
+
+    /**
+     * Property ID to column mapping.
+     */
+    private HashMap<Object, Column> columns = new HashMap<Object, Column>();
+
+    /**
+     * Property ID to type mapping.
+     */
+    private HashMap<Object, Class<?>> types = new HashMap<Object, Class<?>>();
+
+    /**
+     * Item ID to row index mapping.
+     */
+    private HashMap<Object, Integer> rows = new HashMap<Object, Integer>();
+
+    /**
+     * The number of rows that fit in the columns.
+     */
+    private int capacity = INITIAL_CAPACITY;
+
+    /**
+     * The number of rows that have been taken into use, including rows that
+     * have been freed.
+     */
+    private int rowCount = 0;
+
+    /**
+     * Rows of removed items, reused for new items.
+     */
+    private int[] freeRows = new int[0];
+
+    private int freeRowCount = 0;
+
+    /**
+     * Set of properties that are read-only.
+     */
+    private HashSet<Property<?>> readOnlyProperties = new HashSet<Property<?>>();
+
+    /**
+     * Value change listeners of all the properties and of single properties.
+     */
+    private PropertyValueChangeListeners propertyValueChangeListeners = new PropertyValueChangeListeners();
+
+    private HashMap<Object, Object> defaultPropertyValues;
+
+    private int nextGeneratedItemId = 1;
+
+    /* Column implementations */
+
+    /**
+     * Storage for the values of one property in all rows.
+     */
+    private static abstract class Column implements Serializable {
+
+        /**
+         * Gets the value in a row.
+         * 
+         * @param row
+         *            the row index
+         * @return the value or <code>null</code> if no value has been set
+         */
+        public abstract Object get(int row);
+
+        /**
+         * Sets the value in a row.
+         * 
+         * @param row
+         *            the row index
+         * @param value
+         *            the value of the type of the column, or <code>null</code>
+         */
+        public abstract void set(int row, Object value);
+
+        /**
+         * Makes room for the given number of rows.
+         * 
+         * @param capacity
+         *            the new number of rows, larger than the current one
+         */
+        public abstract void grow(int capacity);
+    }
+
+    private static class ObjectColumn extends Column {
+        private Object[] values;
+
+        public ObjectColumn(int capacity) {
+            values = new Object[capacity];
+        }
+
+        @Override
+        public Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public void set(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        public void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * Base class for columns storing primitive values. Keeps track of the rows
+     * with a <code>null</code> value separately.
+     */
+    private static abstract class PrimitiveColumn extends Column {
+        /**
+         * Rows that have a non-null value
+         */
+        private final BitSet present = new BitSet();
+
+        @Override
+        public Object get(int row) {
+            return present.get(row) ? getPrimitive(row) : null;
+        }
+
+        @Override
+        public void set(int row, Object value) {
+            if (value == null) {
+                present.clear(row);
+            } else {
+                present.set(row);
+                setPrimitive(row, value);
+            }
+        }
+
+        protected abstract Object getPrimitive(int row);
+
+        protected abstract void setPrimitive(int row, Object value);
+    }
+
+    private static class IntColumn extends PrimitiveColumn {
+        private int[] values;
+
+        public IntColumn(int capacity) {
+            values = new int[capacity];
+        }
+
+        @Override
+        protected Object getPrimitive(int row) {
+            return Integer.valueOf(values[row]);
+        }
+
+        @Override
+        protected void setPrimitive(int row, Object value) {
+            values[row] = ((Integer) value).intValue();
+        }
+
+        @Override
+        public void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static class LongColumn extends PrimitiveColumn {
+        private long[] values;
+
+        public LongColumn(int capacity) {
+            values = new long[capacity];
+        }
+
+        @Override
+        protected Object getPrimitive(int row) {
+            return Long.valueOf(values[row]);
+        }
+
+        @Override
+        protected void setPrimitive(int row, Object value) {
+            values[row] = ((Long) value).longValue();
+        }
+
+        @Override
+        public void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static class DoubleColumn extends PrimitiveColumn {
+        private double[] values;
+
+        public DoubleColumn(int capacity) {
+            values = new double[capacity];
+        }
+
+        @Override
+        protected Object getPrimitive(int row) {
+            return Double.valueOf(values[row]);
+        }
+
+        @Override
+        protected void setPrimitive(int row, Object value) {
+            values[row] = ((Double) value).doubleValue();
+        }
+
+        @Override
+        public void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static class BooleanColumn extends PrimitiveColumn {
+        private final BitSet values = new BitSet();
+
+        @Override
+        protected Object getPrimitive(int row) {
+            return Boolean.valueOf(values.get(row));
+        }
+
+        @Override
+        protected void setPrimitive(int row, Object value) {
+            values.set(row, ((Boolean) value).booleanValue());
+        }
+
+        @Override
+        public void grow(int capacity) {
+            // BitSet grows as needed
+        }
+    }
+
+    /* Container constructors */
+
+    public ColumnarContainer() {
+        super();
+    }
+
+    public ColumnarContainer(Collection<?> itemIds) {
+        this();
+        for (final Iterator<?> i = itemIds.iterator(); i.hasNext();) {
+            Object itemId = i.next();
+            internalAddItemAtEnd(itemId, new ColumnarContainerItem(itemId),
+                    false);
+        }
+        filterAll();
+    }
+
+    /* Container methods */
+
+    @Override
+    protected Item getUnfilteredItem(Object itemId) {
+        if (itemId != null && rows.containsKey(itemId)) {
+            return new ColumnarContainerItem(itemId);
+        }
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container#getContainerPropertyIds()
+     */
+    @Override
+    public Collection<?> getContainerPropertyIds() {
+        return Collections.unmodifiableCollection(propertyIds);
+    }
+
+    /**
+     * Gets the type of a Property stored in the list.
+     * 
+     * @param id
+     *            the ID of the Property.
+     * @return Type of the requested Property
+     */
+    @Override
+    public Class<?> getType(Object propertyId) {
+        return getColumnType(propertyId);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container#getContainerProperty(java.lang.Object,
+     * java.lang.Object)
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Property getContainerProperty(Object itemId, Object propertyId) {
+        if (!containsId(itemId) || propertyId == null
+                || !columns.containsKey(propertyId)) {
+            return null;
+        }
+
+        return new ColumnarContainerProperty<Object>(itemId, propertyId);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container#addContainerProperty(java.lang.Object,
+     * java.lang.Class, java.lang.Object)
+     */
+    @Override
+    public boolean addContainerProperty(Object propertyId, Class<?> type,
+            Object defaultValue) {
+
+        // Fails, if nulls are given
+        if (propertyId == null || type == null) {
+            return false;
+        }
+
+        // Fails if the Property is already present
+        if (columns.containsKey(propertyId)) {
+            return false;
+        }
+
+        if (defaultValue != null && !isValueOfType(defaultValue, type)) {
+            throw new IllegalArgumentException(
+                    "Default value is of invalid type, got "
+                            + defaultValue.getClass().getName() + " but "
+                            + type.getName() + " was expected");
+        }
+
+        // Adds the Property to Property list and columns
+        propertyIds.add(propertyId);
+        Column column = createColumn(type, capacity);
+        columns.put(propertyId, column);
+        types.put(propertyId, type);
+
+        // If default value is given, set it
+        if (defaultValue != null) {
+            // for existing rows
+            for (Integer row : rows.values()) {
+                column.set(row.intValue(), defaultValue);
+            }
+            // store for next rows
+            if (defaultPropertyValues == null) {
+                defaultPropertyValues = new HashMap<Object, Object>();
+            }
+            defaultPropertyValues.put(propertyId, defaultValue);
+        }
+
+        // Sends a change event
+        fireContainerPropertySetChange();
+
+        return true;
+    }
+
+    private Class<?> getColumnType(Object propertyId) {
+        return types.get(propertyId);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container#removeContainerProperty(java.lang.Object )
+     */
+    @Override
+    public boolean removeContainerProperty(Object propertyId) {
+
+        // Fails if the Property is not present
+        if (!columns.containsKey(propertyId)) {
+            return false;
+        }
+
+        // Removes the Property and its values
+        propertyIds.remove(propertyId);
+        columns.remove(propertyId);
+        types.remove(propertyId);
+        if (defaultPropertyValues != null) {
+            defaultPropertyValues.remove(propertyId);
+        }
+
+        // Sends a change event
+        fireContainerPropertySetChange();
+
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container#removeAllItems()
+     */
+    @Override
+    public boolean removeAllItems() {
+        int origSize = size();
+
+        internalRemoveAllItems();
+
+        // Release the memory used by the values
+        rows.clear();
+        capacity = INITIAL_CAPACITY;
+        rowCount = 0;
+        freeRows = new int[0];
+        freeRowCount = 0;
+        for (Object propertyId : propertyIds) {
+            columns.put(propertyId,
+                    createColumn(getColumnType(propertyId), capacity));
+        }
+
+        // fire event only if the visible view changed, regardless of whether
+        // filtered out items were removed or not
+        if (origSize != 0) {
+            // Sends a change event
+            fireItemSetChange();
+        }
+
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container#addItem()
+     */
+    @Override
+    public Object addItem() {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        // Adds the Item into container
+        addItem(id);
+
+        return id;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container#addItem(java.lang.Object)
+     */
+    @Override
+    public Item addItem(Object itemId) {
+        Item item = internalAddItemAtEnd(itemId, new ColumnarContainerItem(
+                itemId), false);
+        if (item == null) {
+            return null;
+        }
+        if (!isFiltered()) {
+            // always the last item
+            fireItemAdded(size() - 1, itemId, item);
+        } else if (passesFilters(itemId) && !containsId(itemId)) {
+            getFilteredItemIds().add(itemId);
+            // always the last item
+            fireItemAdded(size() - 1, itemId, item);
+        }
+        return item;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container#removeItem(java.lang.Object)
+     */
+    @Override
+    public boolean removeItem(Object itemId) {
+        if (itemId == null) {
+            return false;
+        }
+        Integer row = rows.remove(itemId);
+        if (row == null) {
+            return false;
+        }
+        releaseRow(row.intValue());
+
+        int origSize = size();
+        int position = indexOfId(itemId);
+        if (internalRemoveItem(itemId)) {
+            // fire event only if the visible view changed, regardless of
+            // whether filtered out items were removed or not
+            if (size() != origSize) {
+                fireItemRemoved(position, itemId);
+            }
+
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /* Container.Ordered methods */
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container.Ordered#addItemAfter(java.lang.Object,
+     * java.lang.Object)
+     */
+    @Override
+    public Item addItemAfter(Object previousItemId, Object newItemId) {
+        return internalAddItemAfter(previousItemId, newItemId,
+                new ColumnarContainerItem(newItemId), true);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container.Ordered#addItemAfter(java.lang.Object)
+     */
+    @Override
+    public Object addItemAfter(Object previousItemId) {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        if (addItemAfter(previousItemId, id) != null) {
+            return id;
+        } else {
+            return null;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container.Indexed#addItemAt(int, java.lang.Object)
+     */
+    @Override
+    public Item addItemAt(int index, Object newItemId) {
+        return internalAddItemAt(index, newItemId, new ColumnarContainerItem(
+                newItemId), true);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container.Indexed#addItemAt(int)
+     */
+    @Override
+    public Object addItemAt(int index) {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        // Adds the Item into container
+        addItemAt(index, id);
+
+        return id;
+    }
+
+    /**
+     * Generates an unique identifier for use as an item id. Guarantees that the
+     * generated id is not currently used as an id.
+     * 
+     * @return
+     */
+    private Serializable generateId() {
+        Serializable id;
+        do {
+            id = Integer.valueOf(nextGeneratedItemId++);
+        } while (rows.containsKey(id));
+
+        return id;
+    }
+
+    @Override
+    protected void registerNewItem(int index, Object newItemId, Item item) {
+        int row = allocateRow();
+        rows.put(newItemId, Integer.valueOf(row));
+        if (defaultPropertyValues != null) {
+            for (Map.Entry<Object, Object> entry : defaultPropertyValues
+                    .entrySet()) {
+                columns.get(entry.getKey()).set(row, entry.getValue());
+            }
+        }
+    }
+
+    /* Row management */
+
+    private int allocateRow() {
+        if (freeRowCount > 0) {
+            return freeRows[--freeRowCount];
+        }
+        if (rowCount == capacity) {
+            capacity += capacity / 2;
+            for (Column column : columns.values()) {
+                column.grow(capacity);
+            }
+        }
+        return rowCount++;
+    }
+
+    private void releaseRow(int row) {
+        // Clear the values so that they can be garbage collected
+        for (Column column : columns.values()) {
+            column.set(row, null);
+        }
+        if (freeRowCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows,
+                    Math.max(INITIAL_CAPACITY, 2 * freeRowCount));
+        }
+        freeRows[freeRowCount++] = row;
+    }
+
+    private static Column createColumn(Class<?> type, int capacity) {
+        Class<?> wrapperType = getWrapperType(type);
+        if (wrapperType == Integer.class) {
+            return new IntColumn(capacity);
+        } else if (wrapperType == Long.class) {
+            return new LongColumn(capacity);
+        } else if (wrapperType == Double.class) {
+            return new DoubleColumn(capacity);
+        } else if (wrapperType == Boolean.class) {
+            return new BooleanColumn();
+        } else {
+            return new ObjectColumn(capacity);
+        }
+    }
+
+    /**
+     * Gets the wrapper class for a primitive type.
+     * 
+     * @param type
+     *            a type
+     * @return the wrapper class if type is a primitive type, otherwise type
+     */
+    private static Class<?> getWrapperType(Class<?> type) {
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == char.class) {
+            return Character.class;
+        }
+        return type;
+    }
+
+    private static boolean isValueOfType(Object value, Class<?> type) {
+        return getWrapperType(type).isAssignableFrom(value.getClass());
+    }
+
+    /* Event notifiers */
+
+    @Override
+    public void addPropertySetChangeListener(
+            Container.PropertySetChangeListener listener) {
+        super.addPropertySetChangeListener(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #addPropertySetChangeListener(com.vaadin.data.Container.PropertySetChangeListener)}
+     **/
+    @Deprecated
+    @Override
+    public void addListener(Container.PropertySetChangeListener listener) {
+        addPropertySetChangeListener(listener);
+    }
+
+    @Override
+    public void removePropertySetChangeListener(
+            Container.PropertySetChangeListener listener) {
+        super.removePropertySetChangeListener(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #removePropertySetChangeListener(com.vaadin.data.Container.PropertySetChangeListener)}
+     **/
+    @Deprecated
+    @Override
+    public void removeListener(Container.PropertySetChangeListener listener) {
+        removePropertySetChangeListener(listener);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Property.ValueChangeNotifier#addListener(com.
+     * vaadin.data.Property.ValueChangeListener)
+     */
+    @Override
+    public void addValueChangeListener(Property.ValueChangeListener listener) {
+        propertyValueChangeListeners.addListener(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #addValueChangeListener(com.vaadin.data.Property.ValueChangeListener)}
+     **/
+    @Override
+    @Deprecated
+    public void addListener(Property.ValueChangeListener listener) {
+        addValueChangeListener(listener);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Property.ValueChangeNotifier#removeListener(com
+     * .vaadin.data.Property.ValueChangeListener)
+     */
+    @Override
+    public void removeValueChangeListener(Property.ValueChangeListener listener) {
+        propertyValueChangeListeners.removeListener(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #removeValueChangeListener(com.vaadin.data.Property.ValueChangeListener)}
+     **/
+    @Override
+    @Deprecated
+    public void removeListener(Property.ValueChangeListener listener) {
+        removeValueChangeListener(listener);
+    }
+
+    @Override
+    public Collection<?> getListeners(Class<?> eventType) {
+        if (Property.ValueChangeEvent.class.isAssignableFrom(eventType)) {
+            return propertyValueChangeListeners.getListeners();
+        }
+        return super.getListeners(eventType);
+    }
+
+    /* Internal Item and Property implementations */
+
+    /**
+     * A view to the values of one item in the columns.
+     */
+    class ColumnarContainerItem implements Item {
+
+        /**
+         * Item ID in the host container for this Item.
+         */
+        private final Object itemId;
+
+        private ColumnarContainerItem(Object itemId) {
+            if (itemId == null) {
+                throw new NullPointerException();
+            }
+            this.itemId = itemId;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Item#getItemProperty(java.lang.Object)
+         */
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Property getItemProperty(Object id) {
+            if (id == null || !columns.containsKey(id)) {
+                return null;
+            }
+            return new ColumnarContainerProperty<Object>(itemId, id);
+        }
+
+        @Override
+        public Collection<?> getItemPropertyIds() {
+            return Collections.unmodifiableCollection(propertyIds);
+        }
+
+        /**
+         * Gets the <code>String</code> representation of the contents of the
+         * Item. The format of the string is a space separated catenation of the
+         * <code>String</code> representations of the values of the Properties
+         * contained by the Item.
+         * 
+         * @return <code>String</code> representation of the Item contents
+         */
+        @Override
+        public String toString() {
+            StringBuilder retValue = new StringBuilder();
+            for (final Iterator<?> i = propertyIds.iterator(); i.hasNext();) {
+                final Object propertyId = i.next();
+                retValue.append(getItemProperty(propertyId).getValue());
+                if (i.hasNext()) {
+                    retValue.append(' ');
+                }
+            }
+
+            return retValue.toString();
+        }
+
+        @Override
+        public int hashCode() {
+            return itemId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null
+                    || !obj.getClass().equals(ColumnarContainerItem.class)) {
+                return false;
+            }
+            final ColumnarContainerItem li = (ColumnarContainerItem) obj;
+            return getHost() == li.getHost() && itemId.equals(li.itemId);
+        }
+
+        private ColumnarContainer getHost() {
+            return ColumnarContainer.this;
+        }
+
+        /**
+         * ColumnarContainerItem does not support adding new properties. Add
+         * properties at container level. See
+         * {@link ColumnarContainer#addContainerProperty(Object, Class, Object)}
+         * 
+         * @see com.vaadin.data.Item#addProperty(Object, Property)
+         */
+        @Override
+        @SuppressWarnings("rawtypes")
+        public boolean addItemProperty(Object id, Property property)
+                throws UnsupportedOperationException {
+            throw new UnsupportedOperationException("Columnar container item "
+                    + "does not support adding new properties");
+        }
+
+        /**
+         * ColumnarContainerItem does not support removing properties. Remove
+         * properties at container level. See
+         * {@link ColumnarContainer#removeContainerProperty(Object)}
+         * 
+         * @see com.vaadin.data.Item#removeProperty(Object)
+         */
+        @Override
+        public boolean removeItemProperty(Object id)
+                throws UnsupportedOperationException {
+            throw new UnsupportedOperationException(
+                    "Columnar container item does not support property removal");
+        }
+
+    }
+
+    /**
+     * A view to the value of one property of one item in the columns.
+     */
+    private class ColumnarContainerProperty<T> implements Property<T>,
+            Property.ValueChangeNotifier {
+
+        /**
+         * ID of the Item, where this property resides.
+         */
+        private final Object itemId;
+
+        /**
+         * Id of the Property.
+         */
+        private final Object propertyId;
+
+        private ColumnarContainerProperty(Object itemId, Object propertyId) {
+            if (itemId == null || propertyId == null) {
+                // Null ids are not accepted
+                throw new NullPointerException(
+                        "Container item or property ids can not be null");
+            }
+            this.propertyId = propertyId;
+            this.itemId = itemId;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Property#getType()
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<T> getType() {
+            return (Class<T>) getColumnType(propertyId);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Property#getValue()
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public T getValue() {
+            Integer row = rows.get(itemId);
+            Column column = columns.get(propertyId);
+            if (row == null || column == null) {
+                // Removed from the container
+                return null;
+            }
+            return (T) column.get(row.intValue());
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Property#isReadOnly()
+         */
+        @Override
+        public boolean isReadOnly() {
+            return readOnlyProperties.contains(this);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Property#setReadOnly(boolean)
+         */
+        @Override
+        public void setReadOnly(boolean newStatus) {
+            if (newStatus) {
+                readOnlyProperties.add(this);
+            } else {
+                readOnlyProperties.remove(this);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Property#setValue(java.lang.Object)
+         */
+        @Override
+        public void setValue(Object newValue) throws Property.ReadOnlyException {
+            Integer row = rows.get(itemId);
+            Column column = columns.get(propertyId);
+            if (row == null || column == null) {
+                throw new IllegalStateException(
+                        "The item or property has been removed from the container");
+            }
+
+            // Support null values on all types
+            if (newValue != null && !isValueOfType(newValue, getType())) {
+                throw new IllegalArgumentException(
+                        "Value is of invalid type, got "
+                                + newValue.getClass().getName() + " but "
+                                + getType().getName() + " was expected");
+            }
+            column.set(row.intValue(), newValue);
+
+            // update the container filtering if this property is being filtered
+            discardLastFilteredItemIds();
+            if (isPropertyFiltered(propertyId)) {
+                filterAll();
+            }
+
+            propertyValueChangeListeners.firePropertyValueChange(this,
+                    propertyId, itemId);
+        }
+
+        /**
+         * Returns a string representation of this object. The returned string
+         * representation depends on if the legacy Property toString mode is
+         * enabled or disabled.
+         * 
+         * @return A string representation of the value value stored in the
+         *         Property or a string representation of the Property object.
+         * @deprecated As of 7.0. To get the property value, use
+         *             {@link #getValue()} instead (and possibly toString on
+         *             that)
+         */
+        @Deprecated
+        @Override
+        public String toString() {
+            if (!LegacyPropertyHelper.isLegacyToStringEnabled()) {
+                return super.toString();
+            } else {
+                return LegacyPropertyHelper.legacyPropertyToString(this);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return itemId.hashCode() ^ propertyId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null
+                    || !obj.getClass().equals(ColumnarContainerProperty.class)) {
+                return false;
+            }
+            final ColumnarContainerProperty<?> lp = (ColumnarContainerProperty<?>) obj;
+            return lp.getHost() == getHost()
+                    && lp.propertyId.equals(propertyId)
+                    && lp.itemId.equals(itemId);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Property.ValueChangeNotifier#addListener(
+         * com.vaadin.data.Property.ValueChangeListener)
+         */
+        @Override
+        public void addValueChangeListener(Property.ValueChangeListener listener) {
+            propertyValueChangeListeners.addSinglePropertyChangeListener(
+                    propertyId, itemId, listener);
+        }
+
+        /**
+         * @deprecated As of 7.0, replaced by
+         *             {@link #addValueChangeListener(com.vaadin.data.Property.ValueChangeListener)}
+         **/
+        @Override
+        @Deprecated
+        public void addListener(Property.ValueChangeListener listener) {
+            addValueChangeListener(listener);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Property.ValueChangeNotifier#removeListener
+         * (com.vaadin.data.Property.ValueChangeListener)
+         */
+        @Override
+        public void removeValueChangeListener(
+                Property.ValueChangeListener listener) {
+            propertyValueChangeListeners.removeSinglePropertyChangeListener(
+                    propertyId, itemId, listener);
+        }
+
+        /**
+         * @deprecated As of 7.0, replaced by
+         *             {@link #removeValueChangeListener(com.vaadin.data.Property.ValueChangeListener)}
+         **/
+        @Override
+        @Deprecated
+        public void removeListener(Property.ValueChangeListener listener) {
+            removeValueChangeListener(listener);
+        }
+
+        private ColumnarContainer getHost() {
+            return ColumnarContainer.this;
+        }
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container.Sortable#sort(java.lang.Object[],
+     * boolean[])
+     */
+    @Override
+    public void sort(Object[] propertyId, boolean[] ascending) {
+        sortContainer(propertyId, ascending);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.Container.Sortable#getSortableContainerPropertyIds
+     * ()
+     */
+    @Override
+    public Collection<?> getSortableContainerPropertyIds() {
+        return getSortablePropertyIds();
+    }
+
+    @Override
+    public ItemSorter getItemSorter() {
+        return super.getItemSorter();
+    }
+
+    @Override
+    public void setItemSorter(ItemSorter itemSorter) {
+        super.setItemSorter(itemSorter);
+    }
+
+    @Override
+    public void addContainerFilter(Object propertyId, String filterString,
+            boolean ignoreCase, boolean onlyMatchPrefix) {
+        try {
+            addFilter(new SimpleStringFilter(propertyId, filterString,
+                    ignoreCase, onlyMatchPrefix));
+        } catch (UnsupportedFilterException e) {
+            // the filter instance created here is always valid for in-memory
+            // containers
+        }
+    }
+
+    @Override
+    public void removeAllContainerFilters() {
+        removeAllFilters();
+    }
+
+    @Override
+    public void removeContainerFilters(Object propertyId) {
+        removeFilters(propertyId);
+    }
+
+    @Override
+    public void addContainerFilter(Filter filter)
+            throws UnsupportedFilterException {
+        addFilter(filter);
+    }
+
+    @Override
+    public void removeContainerFilter(Filter filter) {
+        removeFilter(filter);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.util.AbstractInMemoryContainer#getContainerFilters()
+     */
+    @Override
+    public boolean hasContainerFilters() {
+        return super.hasContainerFilters();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.util.AbstractInMemoryContainer#getContainerFilters()
+     */
+    @Override
+    public Collection<Filter> getContainerFilters() {
+        return super.getContainerFilters();
+    }
+}
@@ -17,14 +17,17 @@ package com.vaadin.data.util;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.Sortable;
 import com.vaadin.data.Item;
 import com.vaadin.data.Property;
+import com.vaadin.data.util.ParallelExecution.RangeTask;
 
 /**
  * Provides a default implementation of an ItemSorter. The
@@ -153,6 +156,120 @@ public class DefaultItemSorter implements ItemSorter {
         return r;
     }
 
+    /**
+     * Sorts a list of item ids according to the sort properties set using
+     * {@link #setSortProperties(Sortable, Object[], boolean[])}. The result is
+     * the same as when sorting the list using this sorter as the comparator,
+     * but the property values of each item are only fetched once instead of
+     * on every comparison.
+     * <p>
+     * If an executor is given and there are at least
+     * <code>parallelThreshold</code> item ids, the property values are fetched
+     * for different parts of the list in parallel. The properties must then be
+     * safe to read from multiple threads.
+     * <p>
+     * This method does not use {@link #compareProperty(Object, boolean, Item,
+     * Item)}, so subclasses overriding it should sort using the sorter as a
+     * comparator instead.
+     * 
+     * @param itemIds
+     *            the item ids to sort
+     * @param executor
+     *            the executor for fetching the property values in parallel or
+     *            <code>null</code> to fetch them in the calling thread
+     * @param parallelThreshold
+     *            the minimum number of item ids for fetching the property
+     *            values in parallel
+     * @since 7.1
+     */
+    public <T> void sort(List<T> itemIds, ExecutorService executor,
+            int parallelThreshold) {
+        final Object[] ids = itemIds.toArray();
+        final Object[][] keys = new Object[ids.length][];
+
+        ParallelExecution.run(executor, parallelThreshold, ids.length,
+                new RangeTask() {
+                    @Override
+                    public void run(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            keys[i] = getSortKey(ids[i]);
+                        }
+                    }
+                });
+
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = Integer.valueOf(i);
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer index1, Integer index2) {
+                return compareSortKeys(keys[index1.intValue()],
+                        keys[index2.intValue()]);
+            }
+        });
+
+        List<T> sorted = new ArrayList<T>(ids.length);
+        for (Integer index : order) {
+            @SuppressWarnings("unchecked")
+            T itemId = (T) ids[index.intValue()];
+            sorted.add(itemId);
+        }
+        itemIds.clear();
+        itemIds.addAll(sorted);
+    }
+
+    /**
+     * Gets the values of the sort properties for an item.
+     * 
+     * @param itemId
+     *            the id of the item
+     * @return the property values or <code>null</code> if the item is not
+     *         found
+     */
+    private Object[] getSortKey(Object itemId) {
+        Item item = container.getItem(itemId);
+        if (item == null) {
+            return null;
+        }
+        Object[] key = new Object[sortPropertyIds.length];
+        for (int i = 0; i < sortPropertyIds.length; i++) {
+            Property<?> property = item.getItemProperty(sortPropertyIds[i]);
+            key[i] = (property == null) ? null : property.getValue();
+        }
+        return key;
+    }
+
+    /**
+     * Compares the sort keys of two items the same way as
+     * {@link #compare(Object, Object)} compares the items.
+     */
+    private int compareSortKeys(Object[] key1, Object[] key2) {
+        // Missing items are "greater" than the other items
+        if (key1 == null) {
+            if (key2 == null) {
+                return 0;
+            } else {
+                return 1;
+            }
+        } else if (key2 == null) {
+            return -1;
+        }
+
+        for (int i = 0; i < key1.length; i++) {
+            int result;
+            if (sortDirections[i]) {
+                result = propertyValueComparator.compare(key1[i], key2[i]);
+            } else {
+                result = propertyValueComparator.compare(key2[i], key1[i]);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
     /*
      * (non-Javadoc)
      * 
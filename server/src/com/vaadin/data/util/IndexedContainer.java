@@ -945,6 +945,7 @@ public class IndexedContainer extends
             }
 
             // update the container filtering if this property is being filtered
+            discardLastFilteredItemIds();
             if (isPropertyFiltered(propertyId)) {
                 filterAll();
             }
@@ -29,11 +29,41 @@ import java.util.Iterator;
  * specified by {@link #equals(Object)}). The {@link #set(int, Object)} method
  * allows duplicates because of the way {@link Collections#sort(java.util.List)}
  * works.
- * 
+ * <p>
+ * The set also keeps track of the index of each element, making
+ * {@link #indexOf(Object)} a constant time operation as long as the list is
+ * only appended to. Other modifications, such as sorting or inserting in the
+ * middle of the list, invalidate the indexes. They are rebuilt once linear
+ * searches have cost as much as rebuilding would.
+ * <p>
  * This class is subject to change and should not be used outside Vaadin core.
  */
 public class ListSet<E> extends ArrayList<E> {
-    private HashSet<E> itemSet = null;
+    /**
+     * Contains the elements of the list mapped to their indexes. The indexes
+     * are only valid if {@link #isIndexValid()} returns true.
+     */
+    private HashMap<E, Integer> itemIndexes = null;
+
+    /**
+     * False if the indexes in {@link #itemIndexes} need to be rebuilt
+     */
+    private boolean indexValid = true;
+
+    /**
+     * The modification count of the list when the indexes were last known to
+     * be valid. Used for detecting structural modifications that do not go
+     * through the methods of this class, such as sorting.
+     */
+    private int indexModCount = 0;
+
+    /**
+     * The number of elements compared by linear {@link #indexOf(Object)}
+     * searches since the indexes became invalid. The indexes are only rebuilt
+     * once this exceeds the size of the list so that interleaved inserts and
+     * lookups do not rebuild the indexes over and over again.
+     */
+    private int scannedSinceInvalidation = 0;
 
     /**
      * Contains a map from an element to the number of duplicates it has. Used
@@ -43,29 +73,34 @@ public class ListSet<E> extends ArrayList<E> {
 
     public ListSet() {
         super();
-        itemSet = new HashSet<E>();
+        itemIndexes = new HashMap<E, Integer>();
+        indexModCount = modCount;
     }
 
     public ListSet(Collection<? extends E> c) {
         super(c);
-        itemSet = new HashSet<E>(c.size());
-        itemSet.addAll(c);
+        itemIndexes = new HashMap<E, Integer>(c.size());
+        for (E e : c) {
+            itemIndexes.put(e, null);
+        }
+        indexValid = false;
     }
 
     public ListSet(int initialCapacity) {
         super(initialCapacity);
-        itemSet = new HashSet<E>(initialCapacity);
+        itemIndexes = new HashMap<E, Integer>(initialCapacity);
+        indexModCount = modCount;
     }
 
     // Delegate contains operations to the set
     @Override
     public boolean contains(Object o) {
-        return itemSet.contains(o);
+        return itemIndexes.containsKey(o);
     }
 
     @Override
     public boolean containsAll(Collection<?> c) {
-        return itemSet.containsAll(c);
+        return itemIndexes.keySet().containsAll(c);
     }
 
     // Methods for updating the set when the list is updated.
@@ -76,8 +111,10 @@ public class ListSet<E> extends ArrayList<E> {
             return false;
         }
 
+        boolean keepIndex = isIndexValid();
         if (super.add(e)) {
-            itemSet.add(e);
+            itemIndexes.put(e, size() - 1);
+            updateIndexValidity(keepIndex);
             return true;
         } else {
             return false;
@@ -95,8 +132,11 @@ public class ListSet<E> extends ArrayList<E> {
             return;
         }
 
+        // Only appending keeps the indexes of other elements intact
+        boolean keepIndex = isIndexValid() && index == size();
         super.add(index, element);
-        itemSet.add(element);
+        itemIndexes.put(element, index);
+        updateIndexValidity(keepIndex);
     }
 
     @Override
@@ -110,7 +150,6 @@ public class ListSet<E> extends ArrayList<E> {
             }
 
             if (add(e)) {
-                itemSet.add(e);
                 modified = true;
             }
         }
@@ -130,7 +169,6 @@ public class ListSet<E> extends ArrayList<E> {
             }
 
             add(index++, e);
-            itemSet.add(e);
             modified = true;
         }
 
@@ -140,16 +178,33 @@ public class ListSet<E> extends ArrayList<E> {
     @Override
     public void clear() {
         super.clear();
-        itemSet.clear();
+        itemIndexes.clear();
+        duplicates.clear();
+        updateIndexValidity(true);
     }
 
     @Override
     public int indexOf(Object o) {
-        if (!contains(o)) {
+        Integer index = itemIndexes.get(o);
+        if (index == null && !contains(o)) {
             return -1;
         }
 
-        return super.indexOf(o);
+        if (!isIndexValid()) {
+            if (!duplicates.isEmpty()) {
+                // Being sorted, the indexes can't be rebuilt now
+                return super.indexOf(o);
+            }
+            if (scannedSinceInvalidation < size()) {
+                int scanned = super.indexOf(o);
+                scannedSinceInvalidation += scanned + 1;
+                return scanned;
+            }
+            rebuildIndex();
+            index = itemIndexes.get(o);
+        }
+
+        return index.intValue();
     }
 
     @Override
@@ -158,28 +213,37 @@ public class ListSet<E> extends ArrayList<E> {
             return -1;
         }
 
-        return super.lastIndexOf(o);
+        if (!duplicates.isEmpty()) {
+            return super.lastIndexOf(o);
+        }
+
+        // Elements are unique
+        return indexOf(o);
     }
 
     @Override
     public E remove(int index) {
+        // Only removing the last element keeps the other indexes intact
+        boolean keepIndex = isIndexValid() && index == size() - 1;
         E e = super.remove(index);
 
         if (e != null) {
-            itemSet.remove(e);
+            itemIndexes.remove(e);
         }
+        updateIndexValidity(keepIndex);
 
         return e;
     }
 
     @Override
     public boolean remove(Object o) {
-        if (super.remove(o)) {
-            itemSet.remove(o);
-            return true;
-        } else {
+        int index = indexOf(o);
+        if (index == -1) {
             return false;
         }
+
+        remove(index);
+        return true;
     }
 
     @Override
@@ -188,12 +252,15 @@ public class ListSet<E> extends ArrayList<E> {
         for (int idx = fromIndex; idx < toIndex; idx++) {
             toRemove.add(get(idx));
         }
+        boolean keepIndex = isIndexValid() && toIndex == size();
         super.removeRange(fromIndex, toIndex);
-        itemSet.removeAll(toRemove);
+        itemIndexes.keySet().removeAll(toRemove);
+        updateIndexValidity(keepIndex);
     }
 
     @Override
     public E set(int index, E element) {
+        boolean keepIndex = isIndexValid();
         if (contains(element)) {
             // Element already exist in the list
             if (get(index) == element) {
@@ -208,16 +275,49 @@ public class ListSet<E> extends ArrayList<E> {
                 // element (indexOf(element)) which is not a fast operation in a
                 // list. So we instead allow duplicates temporarily.
                 addDuplicate(element);
+                keepIndex = false;
             }
         }
 
         E old = super.set(index, element);
         removeFromSet(old);
-        itemSet.add(element);
+        itemIndexes.put(element, index);
+        updateIndexValidity(keepIndex);
 
         return old;
     }
 
+    /**
+     * Checks whether the indexes stored in {@link #itemIndexes} are up to
+     * date.
+     * 
+     * @return true if the indexes can be used, false if they must be rebuilt
+     */
+    private boolean isIndexValid() {
+        return indexValid && indexModCount == modCount;
+    }
+
+    /**
+     * Marks the indexes as valid after a modification that has kept them up to
+     * date, or as invalid after any other modification.
+     * 
+     * @param valid
+     *            true if the indexes were valid before the modification and
+     *            the modification has updated them
+     */
+    private void updateIndexValidity(boolean valid) {
+        indexValid = valid;
+        indexModCount = modCount;
+        scannedSinceInvalidation = 0;
+    }
+
+    private void rebuildIndex() {
+        for (int i = 0; i < size(); i++) {
+            itemIndexes.put(get(i), i);
+        }
+        updateIndexValidity(true);
+    }
+
     /**
      * Removes "e" from the set if it no longer exists in the list.
      * 
@@ -237,7 +337,7 @@ public class ListSet<E> extends ArrayList<E> {
             }
         } else {
             // The "old" value is no longer in the list.
-            itemSet.remove(e);
+            itemIndexes.remove(e);
         }
 
     }
@@ -269,7 +369,10 @@ public class ListSet<E> extends ArrayList<E> {
     @Override
     public Object clone() {
         ListSet<E> v = (ListSet<E>) super.clone();
-        v.itemSet = new HashSet<E>(itemSet);
+        v.itemIndexes = new HashMap<E, Integer>(itemIndexes);
+        v.duplicates = new HashMap<E, Integer>(duplicates);
+        // The modification count of the clone is reset
+        v.indexValid = false;
         return v;
     }
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Helper for running an operation on a range of indexes split into parts that
+ * are processed in parallel by an executor. Used by in-memory containers for
+ * sorting and filtering large numbers of items.
+ * 
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+@SuppressWarnings("serial")
+class ParallelExecution implements Serializable {
+
+    /**
+     * An operation that processes the indexes in a given range.
+     */
+    interface RangeTask extends Serializable {
+        /**
+         * Processes the indexes from <code>from</code> (inclusive) to
+         * <code>to</code> (exclusive).
+         * 
+         * @param from
+         *            the first index to process
+         * @param to
+         *            the index after the last index to process
+         */
+        public void run(int from, int to);
+    }
+
+    /**
+     * Runs a task for a part of the range.
+     */
+    private static class RangeCallable implements Callable<Void>, Serializable {
+        private final RangeTask task;
+        private final int from;
+        private final int to;
+
+        public RangeCallable(RangeTask task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Void call() {
+            task.run(from, to);
+            return null;
+        }
+    }
+
+    private ParallelExecution() {
+        // Only static methods
+    }
+
+    /**
+     * Runs a task for the indexes from 0 to <code>size</code>. If an executor
+     * is given and the size is at least the threshold, the range is split into
+     * one part per available processor and the parts are run by the executor.
+     * Otherwise the task is run for the whole range in the calling thread.
+     * 
+     * @param executor
+     *            the executor to use or <code>null</code> to run the task in
+     *            the calling thread
+     * @param threshold
+     *            the minimum size for running the task in parallel
+     * @param size
+     *            the number of indexes to process
+     * @param task
+     *            the task to run
+     */
+    public static void run(ExecutorService executor, int threshold, int size,
+            RangeTask task) {
+        int parts = Math.min(Runtime.getRuntime().availableProcessors(), size);
+        if (executor == null || size < threshold || parts < 2) {
+            task.run(0, size);
+            return;
+        }
+
+        List<Callable<Void>> callables = new ArrayList<Callable<Void>>(parts);
+        for (int i = 0; i < parts; i++) {
+            int from = (int) ((long) size * i / parts);
+            int to = (int) ((long) size * (i + 1) / parts);
+            callables.add(new RangeCallable(task, from, to));
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(callables)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(
+                    "Interrupted while waiting for parallel execution", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
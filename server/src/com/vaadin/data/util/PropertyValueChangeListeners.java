@@ -0,0 +1,231 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.data.util;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.data.Property;
+
+/**
+ * The Property value change listeners of an in-memory container whose items
+ * and properties are created by the container itself, such as
+ * {@link ColumnarContainer}. Listeners can listen to value changes of all the
+ * properties in the container or of a single property of a single item.
+ * <p>
+ * {@link IndexedContainer} keeps its own listener fields to retain its
+ * serialized form.
+ * 
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+@SuppressWarnings("serial")
+class PropertyValueChangeListeners implements Serializable {
+
+    /**
+     * An <code>event</code> object specifying the Property in a list whose
+     * value has changed.
+     */
+    private static class PropertyValueChangeEvent extends EventObject implements
+            Property.ValueChangeEvent, Serializable {
+
+        private PropertyValueChangeEvent(Property<?> source) {
+            super(source);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.vaadin.data.Property.ValueChangeEvent#getProperty()
+         */
+        @Override
+        public Property<?> getProperty() {
+            return (Property<?>) getSource();
+        }
+
+    }
+
+    /**
+     * List of all Property value change event listeners listening all the
+     * properties.
+     */
+    private LinkedList<Property.ValueChangeListener> propertyValueChangeListeners = null;
+
+    /**
+     * Data structure containing all listeners interested in changes to single
+     * Properties. The data structure is a map from Property IDs to maps that
+     * map Item IDs to a linked list of listeners listening Property identified
+     * by given Property ID and Item ID.
+     */
+    private HashMap<Object, Map<Object, List<Property.ValueChangeListener>>> singlePropertyValueChangeListeners = null;
+
+    /**
+     * Adds a listener for value changes of all the properties.
+     * 
+     * @param listener
+     *            the listener to be added.
+     */
+    public void addListener(Property.ValueChangeListener listener) {
+        if (propertyValueChangeListeners == null) {
+            propertyValueChangeListeners = new LinkedList<Property.ValueChangeListener>();
+        }
+        propertyValueChangeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener for value changes of all the properties.
+     * 
+     * @param listener
+     *            the listener to be removed.
+     */
+    public void removeListener(Property.ValueChangeListener listener) {
+        if (propertyValueChangeListeners != null) {
+            propertyValueChangeListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Returns the listeners for value changes of all the properties.
+     * 
+     * @return an unmodifiable collection of the listeners, not null
+     */
+    public Collection<Property.ValueChangeListener> getListeners() {
+        if (propertyValueChangeListeners == null) {
+            return Collections.emptyList();
+        } else {
+            return Collections
+                    .unmodifiableCollection(propertyValueChangeListeners);
+        }
+    }
+
+    /**
+     * Adds new single Property change listener.
+     * 
+     * @param propertyId
+     *            the ID of the Property to add.
+     * @param itemId
+     *            the ID of the Item .
+     * @param listener
+     *            the listener to be added.
+     */
+    public void addSinglePropertyChangeListener(Object propertyId,
+            Object itemId, Property.ValueChangeListener listener) {
+        if (listener != null) {
+            if (singlePropertyValueChangeListeners == null) {
+                singlePropertyValueChangeListeners = new HashMap<Object, Map<Object, List<Property.ValueChangeListener>>>();
+            }
+            Map<Object, List<Property.ValueChangeListener>> propertySetToListenerListMap = singlePropertyValueChangeListeners
+                    .get(propertyId);
+            if (propertySetToListenerListMap == null) {
+                propertySetToListenerListMap = new HashMap<Object, List<Property.ValueChangeListener>>();
+                singlePropertyValueChangeListeners.put(propertyId,
+                        propertySetToListenerListMap);
+            }
+            List<Property.ValueChangeListener> listenerList = propertySetToListenerListMap
+                    .get(itemId);
+            if (listenerList == null) {
+                listenerList = new LinkedList<Property.ValueChangeListener>();
+                propertySetToListenerListMap.put(itemId, listenerList);
+            }
+            listenerList.add(listener);
+        }
+    }
+
+    /**
+     * Removes a previously registered single Property change listener.
+     * 
+     * @param propertyId
+     *            the ID of the Property to remove.
+     * @param itemId
+     *            the ID of the Item.
+     * @param listener
+     *            the listener to be removed.
+     */
+    public void removeSinglePropertyChangeListener(Object propertyId,
+            Object itemId, Property.ValueChangeListener listener) {
+        if (listener != null && singlePropertyValueChangeListeners != null) {
+            final Map<Object, List<Property.ValueChangeListener>> propertySetToListenerListMap = singlePropertyValueChangeListeners
+                    .get(propertyId);
+            if (propertySetToListenerListMap != null) {
+                final List<Property.ValueChangeListener> listenerList = propertySetToListenerListMap
+                        .get(itemId);
+                if (listenerList != null) {
+                    listenerList.remove(listener);
+                    if (listenerList.isEmpty()) {
+                        propertySetToListenerListMap.remove(itemId);
+                    }
+                }
+                if (propertySetToListenerListMap.isEmpty()) {
+                    singlePropertyValueChangeListeners.remove(propertyId);
+                }
+            }
+            if (singlePropertyValueChangeListeners.isEmpty()) {
+                singlePropertyValueChangeListeners = null;
+            }
+        }
+    }
+
+    /**
+     * Sends a Property value change event to all interested listeners.
+     * 
+     * @param source
+     *            the Property whose value has changed.
+     * @param propertyId
+     *            the ID of the Property.
+     * @param itemId
+     *            the ID of the Item the Property belongs to.
+     */
+    public void firePropertyValueChange(Property<?> source, Object propertyId,
+            Object itemId) {
+
+        // Sends event to listeners listening all value changes
+        if (propertyValueChangeListeners != null) {
+            final Object[] l = propertyValueChangeListeners.toArray();
+            final Property.ValueChangeEvent event = new PropertyValueChangeEvent(
+                    source);
+            for (int i = 0; i < l.length; i++) {
+                ((Property.ValueChangeListener) l[i]).valueChange(event);
+            }
+        }
+
+        // Sends event to single property value change listeners
+        if (singlePropertyValueChangeListeners != null) {
+            final Map<Object, List<Property.ValueChangeListener>> propertySetToListenerListMap = singlePropertyValueChangeListeners
+                    .get(propertyId);
+            if (propertySetToListenerListMap != null) {
+                final List<Property.ValueChangeListener> listenerList = propertySetToListenerListMap
+                        .get(itemId);
+                if (listenerList != null) {
+                    final Property.ValueChangeEvent event = new PropertyValueChangeEvent(
+                            source);
+                    Object[] listeners = listenerList.toArray();
+                    for (int i = 0; i < listeners.length; i++) {
+                        ((Property.ValueChangeListener) listeners[i])
+                                .valueChange(event);
+                    }
+                }
+            }
+        }
+
+    }
+}
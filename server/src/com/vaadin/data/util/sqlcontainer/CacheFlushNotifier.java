@@ -20,6 +20,7 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.vaadin.data.util.sqlcontainer.query.FreeformQuery;
 import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
@@ -37,6 +38,12 @@ class CacheFlushNotifier implements Serializable {
     private static List<WeakReference<SQLContainer>> allInstances = new ArrayList<WeakReference<SQLContainer>>();
     private static ReferenceQueue<SQLContainer> deadInstances = new ReferenceQueue<SQLContainer>();
 
+    /*
+     * Shared page caches, invalidated whenever any SQLContainer commits
+     * changes. Shared by all sessions, so the list must be thread safe.
+     */
+    private static List<WeakReference<SharedPageCache>> sharedCaches = new CopyOnWriteArrayList<WeakReference<SharedPageCache>>();
+
     /**
      * Adds the given SQLContainer to the cache flush notification receiver list
      * 
@@ -101,4 +108,38 @@ class CacheFlushNotifier implements Serializable {
             }
         }
     }
+
+    /**
+     * Adds the given shared page cache to the list of caches invalidated when
+     * SQLContainers commit changes.
+     * 
+     * @param cache
+     *            Cache to add
+     */
+    static void addSharedCache(SharedPageCache cache) {
+        sharedCaches.add(new WeakReference<SharedPageCache>(cache));
+    }
+
+    /**
+     * Invalidates the pages of the table of the given SQLContainer in all
+     * shared page caches. This is done regardless of whether the container
+     * has cache flush notifications enabled.
+     * 
+     * @param c
+     *            SQLContainer that committed changes
+     */
+    public static void invalidateSharedCaches(SQLContainer c) {
+        if (!(c.getQueryDelegate() instanceof TableQuery)) {
+            return;
+        }
+        String tableName = ((TableQuery) c.getQueryDelegate()).getTableName();
+        for (WeakReference<SharedPageCache> wr : sharedCaches) {
+            SharedPageCache cache = wr.get();
+            if (cache == null) {
+                sharedCaches.remove(wr);
+            } else {
+                cache.invalidate(tableName);
+            }
+        }
+    }
 }
@@ -28,6 +28,19 @@ class CacheMap<K, V> extends LinkedHashMap<K, V> {
     private int cacheLimit = SQLContainer.CACHE_RATIO
             * SQLContainer.DEFAULT_PAGE_LENGTH;
 
+    CacheMap() {
+        super();
+    }
+
+    /**
+     * @param accessOrder
+     *            true to evict the least recently accessed entries instead of
+     *            the least recently inserted ones
+     */
+    CacheMap(boolean accessOrder) {
+        super(16, 0.75f, accessOrder);
+    }
+
     @Override
     protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
         return size() > cacheLimit;
@@ -16,9 +16,13 @@
 package com.vaadin.data.util.sqlcontainer;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,9 +30,16 @@ import java.util.ConcurrentModificationException;
 import java.util.Date;
 import java.util.EventObject;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,12 +50,14 @@ import com.vaadin.data.Property;
 import com.vaadin.data.util.filter.Compare.Equal;
 import com.vaadin.data.util.filter.Like;
 import com.vaadin.data.util.filter.UnsupportedFilterException;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
 import com.vaadin.data.util.sqlcontainer.query.OrderBy;
 import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
 import com.vaadin.data.util.sqlcontainer.query.QueryDelegate.RowIdChangeListener;
 import com.vaadin.data.util.sqlcontainer.query.TableQuery;
 import com.vaadin.data.util.sqlcontainer.query.generator.MSSQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.OracleGenerator;
+import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
 
 public class SQLContainer implements Container, Container.Filterable,
         Container.Indexed, Container.Sortable, Container.ItemSetChangeNotifier {
@@ -94,6 +107,21 @@ public class SQLContainer implements Container, Container.Filterable,
     /** Starting row number of the currently fetched page */
     private int currentOffset;
 
+    /**
+     * Keyset column values of the last rows of fetched pages, mapped by the
+     * index of the row following them. Used for keyset pagination.
+     */
+    private final TreeMap<Integer, Object[]> keysetBoundaries = new TreeMap<Integer, Object[]>();
+
+    /** Executor for fetching pages in advance, null if not used */
+    private transient ExecutorService prefetchExecutor;
+
+    /** Pages being fetched in advance, mapped by their offset */
+    private transient Map<Integer, Future<FetchedPage>> prefetchedPages;
+
+    /** Cache of rows shared with other containers, null if not used */
+    private transient SharedPageCache sharedPageCache;
+
     /** ItemSetChangeListeners */
     private LinkedList<Container.ItemSetChangeListener> itemSetChangeListeners;
 
@@ -175,10 +203,8 @@ public class SQLContainer implements Container, Container.Filterable,
                     delegate.storeRow(newRowItem);
                     delegate.commit();
                 }
+                notifyOfCacheFlush();
                 refresh();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
                 getLogger().log(Level.FINER, "Row added to DB...");
                 return itemId;
             } catch (SQLException e) {
@@ -314,9 +340,17 @@ public class SQLContainer implements Container, Container.Filterable,
     }
 
     /**
-     * NOTE! Do not use this method if in any way avoidable. This method doesn't
-     * (and cannot) use lazy loading, which means that all rows in the database
-     * will be loaded into memory.
+     * Returns the item ids of the container as a list that fetches the ids
+     * lazily from the data source, one window of {@link #getPageLength()} x
+     * {@link #CACHE_RATIO} rows at a time, and keeps only the most recently
+     * used windows in memory. The list reflects the rows in the data source
+     * when each window is fetched, so it should not be used after the
+     * container has been modified, filtered or sorted.
+     * <p>
+     * NOTE! Iterating over the whole list still reads all the rows in the data
+     * source. If there are uncommitted removals in the container or the query
+     * delegate does not respect paging limits, all item ids are fetched
+     * immediately.
      * 
      * {@inheritDoc}
      */
@@ -324,18 +358,54 @@ public class SQLContainer implements Container, Container.Filterable,
     @Override
     public Collection<?> getItemIds() {
         updateCount();
-        ArrayList<RowId> ids = new ArrayList<RowId>();
+        List<Object> addedIds = new ArrayList<Object>();
+        for (RowItem item : getFilteredAddedItems()) {
+            addedIds.add(item.getId());
+        }
+        if (removedItems.isEmpty()
+                && delegate.implementationRespectsPagingLimits()) {
+            return new ItemIdList(size, addedIds);
+        }
+
+        // Load ALL rows :(
+        ArrayList<Object> ids = new ArrayList<Object>();
+        for (RowId id : fetchItemIds(0, 0)) {
+            if (!removedItems.containsKey(id)) {
+                ids.add(id);
+            }
+        }
+        ids.addAll(addedIds);
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * Fetches the ids of a range of rows from the data source.
+     * 
+     * @param offset
+     *            the index of the first row to fetch
+     * @param count
+     *            the number of rows to fetch, or 0 to fetch all rows
+     * @return the ids of the fetched rows, including rows that have been
+     *         removed from the container but not committed
+     */
+    private List<RowId> fetchItemIds(int offset, int count) {
+        ArrayList<RowId> ids = new ArrayList<RowId>(count);
         ResultSet rs = null;
         try {
-            // Load ALL rows :(
+            try {
+                delegate.setOrderBy(sorters);
+            } catch (UnsupportedOperationException e) {
+                getLogger().log(Level.FINE,
+                        "The query delegate doesn't support sorting", e);
+            }
             delegate.beginTransaction();
-            rs = delegate.getResults(0, 0);
+            rs = getResults(offset, count);
             List<String> pKeys = delegate.getPrimaryKeyColumns();
             while (rs.next()) {
                 RowId id = null;
                 if (pKeys.isEmpty()) {
                     /* Create a read only itemId */
-                    id = new ReadOnlyRowId(rs.getRow());
+                    id = new ReadOnlyRowId(offset + rs.getRow());
                 } else {
                     /* Generate itemId for the row based on primary key(s) */
                     Object[] itemId = new Object[pKeys.size()];
@@ -344,13 +414,17 @@ public class SQLContainer implements Container, Container.Filterable,
                     }
                     id = new RowId(itemId);
                 }
-                if (id != null && !removedItems.containsKey(id)) {
-                    ids.add(id);
+                ids.add(id);
+                if (ids.size() == count) {
+                    addKeysetBoundary(offset + count, rs);
                 }
             }
             rs.getStatement().close();
             rs.close();
             delegate.commit();
+            getLogger().log(Level.FINER,
+                    "Fetched {0} item ids starting from {1}",
+                    new Object[] { ids.size(), offset });
         } catch (SQLException e) {
             getLogger().log(Level.WARNING,
                     "getItemIds() failed, rolling back.", e);
@@ -360,17 +434,75 @@ public class SQLContainer implements Container, Container.Filterable,
                 getLogger().log(Level.SEVERE, "Failed to roll back state", e1);
             }
             try {
-                rs.getStatement().close();
-                rs.close();
+                if (rs != null) {
+                    rs.getStatement().close();
+                    rs.close();
+                }
             } catch (SQLException e1) {
                 getLogger().log(Level.WARNING, "Closing session failed", e1);
             }
             throw new RuntimeException("Failed to fetch item indexes.", e);
         }
-        for (RowItem item : getFilteredAddedItems()) {
-            ids.add(item.getId());
+        return ids;
+    }
+
+    /**
+     * A read-only list of the item ids in the container, returned by
+     * {@link SQLContainer#getItemIds()}. The ids of the rows in the data
+     * source are fetched in windows when accessed, followed by the ids of the
+     * added items.
+     */
+    private class ItemIdList extends AbstractList<Object> implements
+            Serializable {
+        private static final long serialVersionUID = -1229981909899804244L;
+
+        /** Number of id windows to keep in memory */
+        private static final int CACHED_WINDOWS = 10;
+
+        private final int rowCount;
+        private final List<Object> addedIds;
+        private final int windowSize = pageLength * CACHE_RATIO;
+        private final CacheMap<Integer, List<RowId>> windows = new CacheMap<Integer, List<RowId>>(
+                true);
+
+        private ItemIdList(int rowCount, List<Object> addedIds) {
+            this.rowCount = rowCount;
+            this.addedIds = addedIds;
+            windows.setCacheLimit(CACHED_WINDOWS);
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index
+                        + ", Size: " + size());
+            }
+            if (index >= rowCount) {
+                return addedIds.get(index - rowCount);
+            }
+            int windowStart = index - index % windowSize;
+            List<RowId> window = windows.get(windowStart);
+            if (window == null) {
+                window = fetchItemIds(windowStart, windowSize);
+                windows.put(windowStart, window);
+            }
+            if (index - windowStart >= window.size()) {
+                throw new ConcurrentModificationException(
+                        "Rows have been removed from the data source");
+            }
+            return window.get(index - windowStart);
+        }
+
+        @Override
+        public int size() {
+            return rowCount + addedIds.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            // Avoid scanning through all the rows
+            return containsId(o);
         }
-        return Collections.unmodifiableCollection(ids);
     }
 
     /*
@@ -429,10 +561,8 @@ public class SQLContainer implements Container, Container.Filterable,
                 delegate.beginTransaction();
                 boolean success = delegate.removeRow((RowItem) i);
                 delegate.commit();
+                notifyOfCacheFlush();
                 refresh();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
                 if (success) {
                     getLogger().log(Level.FINER, "Row removed from DB...");
                 }
@@ -478,10 +608,11 @@ public class SQLContainer implements Container, Container.Filterable,
     public boolean removeAllItems() throws UnsupportedOperationException {
         if (autoCommit) {
             /* Remove and commit instantly. */
+            List<Object> ids = new ArrayList<Object>(getItemIds());
             try {
                 delegate.beginTransaction();
                 boolean success = true;
-                for (Object id : getItemIds()) {
+                for (Object id : ids) {
                     if (!delegate.removeRow((RowItem) getItem(id))) {
                         success = false;
                     }
@@ -489,10 +620,8 @@ public class SQLContainer implements Container, Container.Filterable,
                 if (success) {
                     delegate.commit();
                     getLogger().log(Level.FINER, "All rows removed from DB...");
+                    notifyOfCacheFlush();
                     refresh();
-                    if (notificationsEnabled) {
-                        CacheFlushNotifier.notifyOfCacheFlush(this);
-                    }
                 } else {
                     delegate.rollback();
                 }
@@ -685,10 +814,10 @@ public class SQLContainer implements Container, Container.Filterable,
         // make sure the size field is valid
         updateCount();
         if (index < size) {
-            if (itemIndexes.keySet().contains(index)) {
-                return itemIndexes.get(index);
+            if (!itemIndexes.keySet().contains(index)) {
+                updateOffsetAndCache(index);
             }
-            updateOffsetAndCache(index);
+            prefetchNear(index);
             return itemIndexes.get(index);
         } else {
             // The index is in the added items
@@ -893,9 +1022,74 @@ public class SQLContainer implements Container, Container.Filterable,
         currentOffset = 0;
         cachedItems.clear();
         itemIndexes.clear();
+        keysetBoundaries.clear();
+        cancelPrefetches();
         fireContentsChange();
     }
 
+    /**
+     * Sets an executor for fetching pages of items in advance. When set and
+     * the query delegate is a {@link TableQuery}, the window of items
+     * following or preceding the cached items is fetched in the background
+     * when an item near the edge of the cached items is accessed, so that
+     * scrolling through the items does not have to wait for the data source.
+     * <p>
+     * The background queries use connections of their own from the connection
+     * pool of the query, with the filters and ordering set when the query is
+     * started. The fetched items are added to the cache only when they are
+     * needed, in the thread accessing the container. The executor is not
+     * serialized with the container.
+     * 
+     * @param prefetchExecutor
+     *            the executor to use, or null to not fetch pages in advance
+     * @since 7.1
+     */
+    public void setPrefetchExecutor(ExecutorService prefetchExecutor) {
+        cancelPrefetches();
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * Returns the executor used for fetching pages of items in advance.
+     * 
+     * @return the executor, or null if pages are not fetched in advance
+     * @see #setPrefetchExecutor(ExecutorService)
+     * @since 7.1
+     */
+    public ExecutorService getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    /**
+     * Sets a cache of fetched rows to share with other containers. When set
+     * and the query delegate is a {@link TableQuery}, pages of items are
+     * looked up from the shared cache before querying the data source, and
+     * the pages fetched from the data source are added to it. Each container
+     * still creates items of its own from the cached rows, so the items can
+     * be modified as usual.
+     * <p>
+     * The shared cache is not serialized with the container.
+     * 
+     * @param sharedPageCache
+     *            the cache to use, or null to not use a shared cache
+     * @see SharedPageCache
+     * @since 7.1
+     */
+    public void setSharedPageCache(SharedPageCache sharedPageCache) {
+        this.sharedPageCache = sharedPageCache;
+    }
+
+    /**
+     * Returns the cache of fetched rows shared with other containers.
+     * 
+     * @return the shared cache, or null if not used
+     * @see #setSharedPageCache(SharedPageCache)
+     * @since 7.1
+     */
+    public SharedPageCache getSharedPageCache() {
+        return sharedPageCache;
+    }
+
     /**
      * Returns modify state of the container.
      * 
@@ -1003,8 +1197,10 @@ public class SQLContainer implements Container, Container.Filterable,
                 }
             }
             /* Perform buffered modifications */
-            for (RowItem item : modifiedItems) {
-                if (delegate.storeRow(item) > 0) {
+            int[] results = storeRows(modifiedItems);
+            for (int i = 0; i < results.length; i++) {
+                RowItem item = modifiedItems.get(i);
+                if (results[i] != 0) {
                     /*
                      * Also reset the modified state in the item in case it is
                      * reused e.g. in a form.
@@ -1019,17 +1215,13 @@ public class SQLContainer implements Container, Container.Filterable,
                 }
             }
             /* Perform buffered additions */
-            for (RowItem item : addedItems) {
-                delegate.storeRow(item);
-            }
+            storeRows(addedItems);
             delegate.commit();
+            notifyOfCacheFlush();
             removedItems.clear();
             addedItems.clear();
             modifiedItems.clear();
             refresh();
-            if (notificationsEnabled) {
-                CacheFlushNotifier.notifyOfCacheFlush(this);
-            }
         } catch (SQLException e) {
             delegate.rollback();
             throw e;
@@ -1039,6 +1231,28 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Stores the given rows through the delegate. If the delegate is a
+     * {@link TableQuery}, updates are sent in batches using
+     * {@link TableQuery#storeRows(List)}. Inserts and updates in a table with
+     * a version column are still sent one row at a time.
+     * <p>
+     * The rows of a TableQuery subclass are stored one at a time, as the
+     * subclass may override {@link TableQuery#storeRow(RowItem)}.
+     * 
+     * @return the number of affected rows for each row
+     */
+    private int[] storeRows(List<RowItem> rows) throws SQLException {
+        if (delegate.getClass() == TableQuery.class) {
+            return ((TableQuery) delegate).storeRows(rows);
+        }
+        int[] results = new int[rows.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = delegate.storeRow(rows.get(i));
+        }
+        return results;
+    }
+
     /**
      * Rolls back all the changes, additions and removals made to the items of
      * this container.
@@ -1074,9 +1288,7 @@ public class SQLContainer implements Container, Container.Filterable,
                                     + "' has been externally modified.");
                 }
                 delegate.commit();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
+                notifyOfCacheFlush();
                 getLogger().log(Level.FINER, "Row updated to DB...");
             } catch (SQLException e) {
                 getLogger().log(Level.WARNING,
@@ -1257,9 +1469,11 @@ public class SQLContainer implements Container, Container.Filterable,
     private void getPage() {
         updateCount();
         ResultSet rs = null;
-        ResultSetMetaData rsmd = null;
         cachedItems.clear();
         itemIndexes.clear();
+        if (cachePrefetchedPage()) {
+            return;
+        }
         try {
             try {
                 delegate.setOrderBy(sorters);
@@ -1269,85 +1483,38 @@ public class SQLContainer implements Container, Container.Filterable,
                 getLogger().log(Level.FINE,
                         "The query delegate doesn't support sorting", e);
             }
-            delegate.beginTransaction();
             int fetchedRows = pageLength * CACHE_RATIO;
-            rs = delegate.getResults(currentOffset, fetchedRows);
-            rsmd = rs.getMetaData();
+            TableQuery tableQuery = null;
+            StatementHelper sharedCacheKey = null;
+            long sharedCacheVersion = 0;
+            if (sharedPageCache != null && delegate instanceof TableQuery) {
+                tableQuery = (TableQuery) delegate;
+                sharedCacheVersion = sharedPageCache.getVersion();
+                sharedCacheKey = getQueryStatement(currentOffset, fetchedRows);
+                FetchedPage page = sharedPageCache.get(tableQuery,
+                        sharedCacheKey);
+                if (page != null) {
+                    cachePage(page, currentOffset, currentOffset + fetchedRows);
+                    getLogger().log(Level.FINER,
+                            "Used shared cached rows starting from {0}",
+                            currentOffset);
+                    return;
+                }
+            }
+            delegate.beginTransaction();
+            rs = getResults(currentOffset, fetchedRows);
             List<String> pKeys = delegate.getPrimaryKeyColumns();
-            // }
-            /* Create new items and column properties */
-            ColumnProperty cp = null;
             int rowCount = currentOffset;
             if (!delegate.implementationRespectsPagingLimits()) {
                 rowCount = currentOffset = 0;
                 setPageLengthInternal(size);
             }
-            while (rs.next()) {
-                List<ColumnProperty> itemProperties = new ArrayList<ColumnProperty>();
-                /* Generate row itemId based on primary key(s) */
-                Object[] itemId = new Object[pKeys.size()];
-                for (int i = 0; i < pKeys.size(); i++) {
-                    itemId[i] = rs.getObject(pKeys.get(i));
-                }
-                RowId id = null;
-                if (pKeys.isEmpty()) {
-                    id = new ReadOnlyRowId(rs.getRow());
-                } else {
-                    id = new RowId(itemId);
-                }
-                List<String> propertiesToAdd = new ArrayList<String>(
-                        propertyIds);
-                if (!removedItems.containsKey(id)) {
-                    for (int i = 1; i <= rsmd.getColumnCount(); i++) {
-                        if (!isColumnIdentifierValid(rsmd.getColumnLabel(i))) {
-                            continue;
-                        }
-                        String colName = rsmd.getColumnLabel(i);
-                        Object value = rs.getObject(i);
-                        Class<?> type = value != null ? value.getClass()
-                                : Object.class;
-                        if (value == null) {
-                            for (String propName : propertyTypes.keySet()) {
-                                if (propName.equals(rsmd.getColumnLabel(i))) {
-                                    type = propertyTypes.get(propName);
-                                    break;
-                                }
-                            }
-                        }
-                        /*
-                         * In case there are more than one column with the same
-                         * name, add only the first one. This can easily happen
-                         * if you join many tables where each table has an ID
-                         * column.
-                         */
-                        if (propertiesToAdd.contains(colName)) {
-
-                            cp = new ColumnProperty(colName,
-                                    propertyReadOnly.get(colName),
-                                    propertyPersistable.get(colName),
-                                    propertyNullable.get(colName),
-                                    propertyPrimaryKey.get(colName), value,
-                                    type);
-                            itemProperties.add(cp);
-                            propertiesToAdd.remove(colName);
-                        }
-                    }
-                    /* Cache item */
-                    itemIndexes.put(rowCount, id);
-
-                    // if an item with the id is contained in the modified
-                    // cache, then use this record and add it to the cached
-                    // items. Otherwise create a new item
-                    int modifiedIndex = indexInModifiedCache(id);
-                    if (modifiedIndex != -1) {
-                        cachedItems.put(id, modifiedItems.get(modifiedIndex));
-                    } else {
-                        cachedItems.put(id, new RowItem(this, id,
-                                itemProperties));
-                    }
-
-                    rowCount++;
-                }
+            FetchedPage page = readPage(rs, pKeys, getKeysetColumns(),
+                    fetchedRows);
+            cachePage(page, rowCount, currentOffset + fetchedRows);
+            if (sharedCacheKey != null) {
+                sharedPageCache.put(tableQuery, sharedCacheKey, page,
+                        sharedCacheVersion);
             }
             rs.getStatement().close();
             rs.close();
@@ -1376,6 +1543,428 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Starts fetching the adjacent window of items in the background if the
+     * given index is near the edge of the cached window.
+     * 
+     * @param index
+     *            the index of an item in the cached window
+     */
+    private void prefetchNear(int index) {
+        if (prefetchExecutor == null || !(delegate instanceof TableQuery)) {
+            return;
+        }
+        int windowSize = pageLength * CACHE_RATIO;
+        int margin = Math.max(1, windowSize / 4);
+        if (index - currentOffset >= windowSize - margin) {
+            prefetch(currentOffset + windowSize, windowSize);
+        } else if (index - currentOffset < margin) {
+            prefetch(currentOffset - windowSize, windowSize);
+        }
+    }
+
+    private void prefetch(int offset, int count) {
+        if (offset < 0 || offset >= size) {
+            return;
+        }
+        if (prefetchedPages == null) {
+            prefetchedPages = new HashMap<Integer, Future<FetchedPage>>();
+        }
+        if (prefetchedPages.containsKey(offset)) {
+            return;
+        }
+        /* Forget pages that are no longer adjacent to the cached window */
+        Iterator<Map.Entry<Integer, Future<FetchedPage>>> i = prefetchedPages
+                .entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<Integer, Future<FetchedPage>> entry = i.next();
+            if (Math.abs(entry.getKey() - currentOffset) != count) {
+                entry.getValue().cancel(false);
+                i.remove();
+            }
+        }
+
+        TableQuery query = (TableQuery) delegate;
+        prefetchedPages.put(offset, prefetchExecutor.submit(new PageFetch(
+                query.getConnectionPool(), getQueryStatement(offset, count),
+                query.getPrimaryKeyColumns(), getKeysetColumns(), count)));
+    }
+
+    /**
+     * Returns the statement {@link #getResults(int, int)} uses for fetching
+     * rows when the query delegate is a {@link TableQuery}.
+     * 
+     * @param offset
+     *            the index of the first row to fetch
+     * @param count
+     *            the number of rows to fetch
+     * @return the query statement
+     */
+    private StatementHelper getQueryStatement(int offset, int count) {
+        TableQuery query = (TableQuery) delegate;
+        if (isKeysetPaginationEnabled()) {
+            Map.Entry<Integer, Object[]> boundary = keysetBoundaries
+                    .floorEntry(offset);
+            if (boundary != null) {
+                return query.getQueryStatementAfter(boundary.getValue(),
+                        offset - boundary.getKey(), count);
+            }
+        }
+        return query.getQueryStatement(offset, count);
+    }
+
+    /**
+     * Adds the items fetched in advance for the current offset to the cache,
+     * waiting for the fetch to complete if it is still running. If the fetch
+     * has not started yet, it is cancelled instead of waiting for it to get
+     * its turn in the executor.
+     * 
+     * @return true if the items were added, false if the page needs to be
+     *         fetched
+     */
+    private boolean cachePrefetchedPage() {
+        if (prefetchedPages == null) {
+            return false;
+        }
+        Future<FetchedPage> future = prefetchedPages.remove(currentOffset);
+        if (future == null || future.cancel(false)) {
+            return false;
+        }
+        try {
+            cachePage(future.get(), currentOffset, currentOffset + pageLength
+                    * CACHE_RATIO);
+            getLogger().log(Level.FINER,
+                    "Used prefetched rows starting from {0}", currentOffset);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            getLogger().log(Level.FINE, "Failed to prefetch rows",
+                    e.getCause());
+        } catch (CancellationException e) {
+            // Fetch the page again
+        }
+        cachedItems.clear();
+        itemIndexes.clear();
+        return false;
+    }
+
+    private void cancelPrefetches() {
+        if (prefetchedPages != null) {
+            for (Future<FetchedPage> future : prefetchedPages.values()) {
+                future.cancel(false);
+            }
+            prefetchedPages.clear();
+        }
+    }
+
+    /**
+     * Fetches a page of rows using a connection of its own, for running in a
+     * background thread.
+     */
+    private class PageFetch implements Callable<FetchedPage>, Serializable {
+        private static final long serialVersionUID = 5141826101612406673L;
+        private final JDBCConnectionPool connectionPool;
+        private final StatementHelper sh;
+        private final List<String> pKeys;
+        private final List<String> keysetColumns;
+        private final int count;
+
+        private PageFetch(JDBCConnectionPool connectionPool,
+                StatementHelper sh, List<String> pKeys,
+                List<String> keysetColumns, int count) {
+            this.connectionPool = connectionPool;
+            this.sh = sh;
+            this.pKeys = pKeys;
+            this.keysetColumns = keysetColumns;
+            this.count = count;
+        }
+
+        @Override
+        public FetchedPage call() throws SQLException {
+            Connection connection = connectionPool.reserveConnection();
+            try {
+                PreparedStatement pstmt = connection.prepareStatement(sh
+                        .getQueryString());
+                try {
+                    sh.setParameterValuesToStatement(pstmt);
+                    getLogger().log(Level.FINE, "DB -> {0}",
+                            sh.getQueryString());
+                    ResultSet rs = pstmt.executeQuery();
+                    try {
+                        return readPage(rs, pKeys, keysetColumns, count);
+                    } finally {
+                        rs.close();
+                    }
+                } finally {
+                    pstmt.close();
+                }
+            } finally {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+                connectionPool.releaseConnection(connection);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the rows read from a result set, to be added to the item
+     * cache. The lists cannot be modified after the page has been read, so
+     * that it can be shared by containers through a {@link SharedPageCache}.
+     * The row values themselves are shared by reference with the properties
+     * of the items created from the page.
+     */
+    static class FetchedPage implements Serializable {
+        private static final long serialVersionUID = 8424227371805211922L;
+        /** Labels of the columns read, in the order of the row values */
+        private final List<String> columns;
+        private final List<RowId> ids;
+        private final List<Object[]> values;
+        /** Keyset column values of the last row if the page is full */
+        private final Object[] lastKeysetValues;
+
+        private FetchedPage(List<String> columns, List<RowId> ids,
+                List<Object[]> values, Object[] lastKeysetValues) {
+            this.columns = Collections.unmodifiableList(columns);
+            this.ids = Collections.unmodifiableList(ids);
+            this.values = Collections.unmodifiableList(values);
+            this.lastKeysetValues = lastKeysetValues;
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+
+    /**
+     * Reads the item ids and properties of the rows in a result set. Only
+     * uses state that does not change after the container has been created,
+     * so that pages can also be read in a background thread.
+     * 
+     * @param rs
+     *            the result set
+     * @param pKeys
+     *            the primary key columns
+     * @param keysetColumns
+     *            the keyset columns, or null if keyset pagination is not used
+     * @param fetchedRows
+     *            the number of rows requested
+     * @return the rows that were read
+     * @throws SQLException
+     */
+    private FetchedPage readPage(ResultSet rs, List<String> pKeys,
+            List<String> keysetColumns, int fetchedRows) throws SQLException {
+        List<String> columns = new ArrayList<String>();
+        List<RowId> ids = new ArrayList<RowId>();
+        List<Object[]> rows = new ArrayList<Object[]>();
+        Object[] lastKeysetValues = null;
+        ResultSetMetaData rsmd = rs.getMetaData();
+        List<Integer> columnIndexes = new ArrayList<Integer>();
+        for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+            String colName = rsmd.getColumnLabel(i);
+            /*
+             * In case there are more than one column with the same name, read
+             * only the first one. This can easily happen if you join many
+             * tables where each table has an ID column.
+             */
+            if (isColumnIdentifierValid(colName)
+                    && propertyIds.contains(colName)
+                    && !columns.contains(colName)) {
+                columnIndexes.add(i);
+                columns.add(colName);
+            }
+        }
+        while (rs.next()) {
+            if (ids.size() + 1 == fetchedRows) {
+                lastKeysetValues = readKeysetValues(rs, keysetColumns);
+            }
+            /* Generate row itemId based on primary key(s) */
+            Object[] itemId = new Object[pKeys.size()];
+            for (int i = 0; i < pKeys.size(); i++) {
+                itemId[i] = rs.getObject(pKeys.get(i));
+            }
+            RowId id = null;
+            if (pKeys.isEmpty()) {
+                id = new ReadOnlyRowId(rs.getRow());
+            } else {
+                id = new RowId(itemId);
+            }
+            Object[] values = new Object[columnIndexes.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(columnIndexes.get(i));
+            }
+            ids.add(id);
+            rows.add(values);
+        }
+        return new FetchedPage(columns, ids, rows, lastKeysetValues);
+    }
+
+    /**
+     * Creates the properties of an item from the values of a fetched row.
+     * 
+     * @param page
+     *            the fetched rows
+     * @param row
+     *            the index of the row in the page
+     * @return the properties of the item
+     */
+    private List<ColumnProperty> createProperties(FetchedPage page, int row) {
+        Object[] values = page.values.get(row);
+        List<ColumnProperty> itemProperties = new ArrayList<ColumnProperty>(
+                values.length);
+        for (int i = 0; i < values.length; i++) {
+            String colName = page.columns.get(i);
+            Object value = values[i];
+            Class<?> type = value != null ? value.getClass() : Object.class;
+            if (value == null && propertyTypes.containsKey(colName)) {
+                type = propertyTypes.get(colName);
+            }
+            itemProperties.add(new ColumnProperty(colName, propertyReadOnly
+                    .get(colName), propertyPersistable.get(colName),
+                    propertyNullable.get(colName), propertyPrimaryKey
+                            .get(colName), value, type));
+        }
+        return itemProperties;
+    }
+
+    /**
+     * Adds the rows of a page to the item cache, skipping removed items and
+     * using the modified version of modified items.
+     * 
+     * @param page
+     *            the rows to add
+     * @param firstIndex
+     *            the index of the first row
+     * @param nextOffset
+     *            the offset of the row following the page in the data source
+     */
+    private void cachePage(FetchedPage page, int firstIndex, int nextOffset) {
+        int rowCount = firstIndex;
+        for (int i = 0; i < page.ids.size(); i++) {
+            RowId id = page.ids.get(i);
+            if (removedItems.containsKey(id)) {
+                continue;
+            }
+            /* Cache item */
+            itemIndexes.put(rowCount, id);
+
+            // if an item with the id is contained in the modified
+            // cache, then use this record and add it to the cached
+            // items. Otherwise create a new item
+            int modifiedIndex = indexInModifiedCache(id);
+            if (modifiedIndex != -1) {
+                cachedItems.put(id, modifiedItems.get(modifiedIndex));
+            } else {
+                cachedItems.put(id,
+                        new RowItem(this, id, createProperties(page, i)));
+            }
+
+            rowCount++;
+        }
+        if (page.lastKeysetValues != null) {
+            keysetBoundaries.put(nextOffset, page.lastKeysetValues);
+        }
+    }
+
+    /**
+     * Fetches rows from the data source. With keyset pagination, the rows are
+     * sought from the nearest known page boundary at or before the offset
+     * instead of making the data source skip all the preceding rows.
+     * 
+     * @param offset
+     *            the index of the first row to fetch
+     * @param count
+     *            the number of rows to fetch, or 0 to fetch all rows
+     * @return the result set of the query
+     * @throws SQLException
+     */
+    private ResultSet getResults(int offset, int count) throws SQLException {
+        if (count > 0 && isKeysetPaginationEnabled()) {
+            Map.Entry<Integer, Object[]> boundary = keysetBoundaries
+                    .floorEntry(offset);
+            if (boundary != null) {
+                return ((TableQuery) delegate).getResultsAfter(
+                        boundary.getValue(), offset - boundary.getKey(), count);
+            }
+        }
+        return delegate.getResults(offset, count);
+    }
+
+    /**
+     * Returns whether pages are fetched using keyset pagination. Keyset
+     * pagination is not used if any of the keyset columns is nullable, as
+     * the seek conditions never match rows with null values, which some
+     * databases order after all the other values.
+     * 
+     * @return true if the delegate is a TableQuery with keyset pagination
+     *         enabled and none of its keyset columns is nullable
+     */
+    private boolean isKeysetPaginationEnabled() {
+        if (!(delegate instanceof TableQuery)
+                || !((TableQuery) delegate).isKeysetPaginationEnabled()) {
+            return false;
+        }
+        for (String column : ((TableQuery) delegate).getKeysetColumns()) {
+            if (Boolean.TRUE.equals(propertyNullable.get(column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the keyset column values of the current row of a result set, so
+     * that the rows following it can be fetched using keyset pagination. Does
+     * nothing if keyset pagination is not enabled or if any of the values is
+     * null.
+     * 
+     * @param nextIndex
+     *            the index of the row following the current row
+     * @param rs
+     *            the result set
+     * @throws SQLException
+     */
+    private void addKeysetBoundary(int nextIndex, ResultSet rs)
+            throws SQLException {
+        Object[] values = readKeysetValues(rs, getKeysetColumns());
+        if (values != null) {
+            keysetBoundaries.put(nextIndex, values);
+        }
+    }
+
+    /**
+     * @return the keyset columns of the delegate, or null if keyset
+     *         pagination is not enabled
+     */
+    private List<String> getKeysetColumns() {
+        if (!isKeysetPaginationEnabled()) {
+            return null;
+        }
+        return ((TableQuery) delegate).getKeysetColumns();
+    }
+
+    /**
+     * Reads the keyset column values of the current row of a result set.
+     * 
+     * @return the values, or null if keyset columns are not given or any of
+     *         the values is null
+     */
+    private static Object[] readKeysetValues(ResultSet rs, List<String> columns)
+            throws SQLException {
+        if (columns == null) {
+            return null;
+        }
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getObject(columns.get(i));
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return values;
+    }
+
     /**
      * Returns the index of the item with the given itemId for the modified
      * cache.
@@ -1681,6 +2270,19 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Informs shared page caches, and other SQLContainers if cache flush
+     * notifications are enabled, that changes have been committed. Must be
+     * called before refreshing this container so that it does not read stale
+     * rows from a shared page cache.
+     */
+    private void notifyOfCacheFlush() {
+        CacheFlushNotifier.invalidateSharedCaches(this);
+        if (notificationsEnabled) {
+            CacheFlushNotifier.notifyOfCacheFlush(this);
+        }
+    }
+
     /******************************************/
     /** Referencing mechanism implementation **/
     /******************************************/
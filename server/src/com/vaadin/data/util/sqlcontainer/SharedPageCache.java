@@ -0,0 +1,246 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.data.util.sqlcontainer.SQLContainer.FetchedPage;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
+
+/**
+ * A cache of fetched rows that can be shared by many SQLContainers, also
+ * across sessions. Containers using the same cache and querying the same table
+ * with the same filters and ordering read the rows of a page from the data
+ * source only once.
+ * <p>
+ * The cache holds snapshots of the row values, keyed by the connection pool
+ * and the query statement used for fetching them, so each container still
+ * has items of its own. The row values are shared by reference with the
+ * properties of those items, so mutable values such as dates or byte arrays
+ * must not be modified in place. The size of the cache is limited by the
+ * total number of cached rows, evicting the least recently used pages first.
+ * <p>
+ * The cached pages of a table are invalidated when any SQLContainer with a
+ * {@link TableQuery} for the table commits changes to it. Changes made to the
+ * database by other means are not noticed; use {@link #invalidate(String)} or
+ * {@link #clear()} in that case. The shared cache is best suited for tables
+ * that are mostly read, such as reference data.
+ * 
+ * @see SQLContainer#setSharedPageCache(SharedPageCache)
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+public class SharedPageCache implements Serializable {
+    private static final long serialVersionUID = -6672508038453076262L;
+
+    /**
+     * Identifies a page by its connection pool, table and the query statement
+     * that fetches it. Containers using different connection pools, e.g. for
+     * databases with the same schema, do not share pages.
+     */
+    private static class PageKey implements Serializable {
+        private static final long serialVersionUID = 5403172924549664168L;
+        /* Compared by identity, not serialized to match no live pool */
+        private final transient JDBCConnectionPool connectionPool;
+        private final String tableName;
+        private final String queryString;
+        private final List<Object> parameters;
+
+        private PageKey(TableQuery query, StatementHelper sh) {
+            connectionPool = query.getConnectionPool();
+            tableName = query.getTableName();
+            queryString = sh.getQueryString();
+            parameters = new ArrayList<Object>(sh.getParameterValues());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) obj;
+            return connectionPool != null
+                    && connectionPool == other.connectionPool
+                    && tableName.equals(other.tableName)
+                    && queryString.equals(other.queryString)
+                    && parameters.equals(other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * queryString.hashCode() + parameters.hashCode();
+        }
+    }
+
+    private final int maxRows;
+
+    /* Access ordered so that the first entry is the least recently used */
+    private final LinkedHashMap<PageKey, FetchedPage> pages = new LinkedHashMap<PageKey, FetchedPage>(
+            16, 0.75f, true);
+    private int rowCount;
+
+    /* Incremented on every invalidation to discard pages read before it */
+    private long version;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Creates a new shared page cache.
+     * 
+     * @param maxRows
+     *            the maximum total number of rows to cache
+     */
+    public SharedPageCache(int maxRows) {
+        if (maxRows < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum number of rows must be positive.");
+        }
+        this.maxRows = maxRows;
+        CacheFlushNotifier.addSharedCache(this);
+    }
+
+    /**
+     * Returns the cached page fetched by the given statement.
+     * 
+     * @param query
+     *            the query delegate the page is fetched with
+     * @param sh
+     *            the statement fetching the page
+     * @return the page, or null if it is not cached
+     */
+    synchronized FetchedPage get(TableQuery query, StatementHelper sh) {
+        FetchedPage page = pages.get(new PageKey(query, sh));
+        if (page == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return page;
+    }
+
+    /**
+     * Returns the current version of the cache, to be passed to
+     * {@link #put(TableQuery, StatementHelper, FetchedPage, long)} after
+     * fetching a page.
+     * 
+     * @return the version
+     */
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Adds a page to the cache, unless the cache has been invalidated after
+     * the page was fetched.
+     * 
+     * @param query
+     *            the query delegate the page was fetched with
+     * @param sh
+     *            the statement used for fetching the page
+     * @param page
+     *            the rows
+     * @param fetchVersion
+     *            the version of the cache before the page was fetched
+     */
+    synchronized void put(TableQuery query, StatementHelper sh,
+            FetchedPage page, long fetchVersion) {
+        if (fetchVersion != version || page.size() > maxRows) {
+            return;
+        }
+        FetchedPage previous = pages.put(new PageKey(query, sh), page);
+        if (previous != null) {
+            rowCount -= previous.size();
+        }
+        rowCount += page.size();
+        Iterator<FetchedPage> i = pages.values().iterator();
+        while (rowCount > maxRows) {
+            rowCount -= i.next().size();
+            i.remove();
+        }
+    }
+
+    /**
+     * Removes the cached pages of a table.
+     * 
+     * @param tableName
+     *            the name of the table
+     */
+    public synchronized void invalidate(String tableName) {
+        version++;
+        Iterator<Map.Entry<PageKey, FetchedPage>> i = pages.entrySet()
+                .iterator();
+        while (i.hasNext()) {
+            Map.Entry<PageKey, FetchedPage> entry = i.next();
+            if (entry.getKey().tableName.equals(tableName)) {
+                rowCount -= entry.getValue().size();
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached pages.
+     */
+    public synchronized void clear() {
+        version++;
+        pages.clear();
+        rowCount = 0;
+    }
+
+    /**
+     * @return the maximum total number of rows to cache
+     */
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * @return the total number of rows currently cached
+     */
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of times a page was found in the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of times a page was not found in the cache
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        CacheFlushNotifier.addSharedCache(this);
+    }
+
+}
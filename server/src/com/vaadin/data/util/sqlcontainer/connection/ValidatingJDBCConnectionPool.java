@@ -0,0 +1,478 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer.connection;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A JDBCConnectionPool implementation for pools shared by many concurrent
+ * users. Unlike {@link SimpleJDBCConnectionPool}, a thread reserving a
+ * connection when all connections are in use waits in a fair queue for a
+ * connection to be released, up to a {@link #setWaitTimeout(long) timeout}.
+ * <p>
+ * Idle connections are handed out most recently used first, so that the
+ * connections not needed under the current load stay idle and are eventually
+ * closed. Connections that have been idle for longer than the
+ * {@link #setValidationInterval(long) validation interval} are validated
+ * before they are handed out, and connections that have been idle for longer
+ * than the {@link #setMaxIdleTime(long) maximum idle time} are closed, as long
+ * as the minimum number of idle connections remains open.
+ * 
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+public class ValidatingJDBCConnectionPool implements JDBCConnectionPool {
+    private static final long serialVersionUID = -2339419270026328182L;
+
+    /**
+     * An available connection and the time it was released.
+     */
+    private static class IdleConnection implements Serializable {
+        private static final long serialVersionUID = -1447944516119561417L;
+
+        private final Connection connection;
+        private final long idleSince;
+
+        private IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    private final int minIdleConnections;
+    private final int maxConnections;
+
+    private final String driverName;
+    private final String connectionUri;
+    private final String userName;
+    private final String password;
+
+    private volatile long waitTimeout = 5000;
+    private volatile long validationInterval = 30000;
+    private volatile int validationTimeout = 5;
+    private volatile long maxIdleTime = 600000;
+
+    /** Permits for reserving connections, one for each connection */
+    private transient Semaphore permits;
+    /** Idle connections, the most recently released first */
+    private transient LinkedBlockingDeque<IdleConnection> idleConnections;
+    private transient AtomicInteger idleCount;
+    private transient ConcurrentMap<Connection, Boolean> reservedConnections;
+    private transient AtomicLong lastEviction;
+
+    /* Metrics */
+    private transient AtomicLong waitCount;
+    private transient AtomicLong timeoutCount;
+    private transient AtomicLong totalWaitTime;
+    private transient AtomicLong maxWaitTime;
+
+    /**
+     * Creates a new pool with at most 20 connections, keeping at least 5 idle
+     * connections open.
+     * 
+     * @param driverName
+     *            the class name of the JDBC driver
+     * @param connectionUri
+     *            the database connection URI
+     * @param userName
+     *            the database user name
+     * @param password
+     *            the database password
+     */
+    public ValidatingJDBCConnectionPool(String driverName,
+            String connectionUri, String userName, String password) {
+        this(driverName, connectionUri, userName, password, 5, 20);
+    }
+
+    /**
+     * Creates a new pool.
+     * 
+     * @param driverName
+     *            the class name of the JDBC driver
+     * @param connectionUri
+     *            the database connection URI
+     * @param userName
+     *            the database user name
+     * @param password
+     *            the database password
+     * @param minIdleConnections
+     *            the number of idle connections that are kept open even if
+     *            they have been idle for longer than the maximum idle time
+     * @param maxConnections
+     *            the maximum number of connections open at the same time
+     */
+    public ValidatingJDBCConnectionPool(String driverName,
+            String connectionUri, String userName, String password,
+            int minIdleConnections, int maxConnections) {
+        if (driverName == null) {
+            throw new IllegalArgumentException(
+                    "JDBC driver class name must be given.");
+        }
+        if (connectionUri == null) {
+            throw new IllegalArgumentException(
+                    "Database connection URI must be given.");
+        }
+        if (userName == null) {
+            throw new IllegalArgumentException(
+                    "Database username must be given.");
+        }
+        if (password == null) {
+            throw new IllegalArgumentException(
+                    "Database password must be given.");
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum number of connections must be positive.");
+        }
+        this.driverName = driverName;
+        this.connectionUri = connectionUri;
+        this.userName = userName;
+        this.password = password;
+        this.minIdleConnections = minIdleConnections;
+        this.maxConnections = maxConnections;
+
+        /* Initialize JDBC driver */
+        try {
+            Class.forName(driverName);
+        } catch (Exception ex) {
+            throw new RuntimeException("Specified JDBC Driver: " + driverName
+                    + " - initialization failed.", ex);
+        }
+        initialize();
+    }
+
+    private void initialize() {
+        permits = new Semaphore(maxConnections, true);
+        idleConnections = new LinkedBlockingDeque<IdleConnection>();
+        idleCount = new AtomicInteger();
+        reservedConnections = new ConcurrentHashMap<Connection, Boolean>();
+        lastEviction = new AtomicLong(System.currentTimeMillis());
+        waitCount = new AtomicLong();
+        timeoutCount = new AtomicLong();
+        totalWaitTime = new AtomicLong();
+        maxWaitTime = new AtomicLong();
+    }
+
+    @Override
+    public Connection reserveConnection() throws SQLException {
+        /*
+         * Unlike tryAcquire(), a timed tryAcquire honors the fairness setting
+         * and does not take a permit ahead of the threads already waiting.
+         */
+        if (!tryAcquirePermit(0)) {
+            waitForPermit();
+        }
+        try {
+            Connection c = takeIdleConnection();
+            if (c == null) {
+                c = createConnection();
+            }
+            reservedConnections.put(c, Boolean.TRUE);
+            return c;
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void waitForPermit() throws SQLException {
+        waitCount.incrementAndGet();
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = tryAcquirePermit(waitTimeout);
+        } finally {
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                    - start);
+            totalWaitTime.addAndGet(waited);
+            long max = maxWaitTime.get();
+            while (waited > max && !maxWaitTime.compareAndSet(max, waited)) {
+                max = maxWaitTime.get();
+            }
+        }
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLException(
+                    "Connection limit has been reached and no connection was released in "
+                            + waitTimeout + " ms.");
+        }
+    }
+
+    private boolean tryAcquirePermit(long timeout) throws SQLException {
+        try {
+            return permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(
+                    "Interrupted while waiting for a connection.");
+        }
+    }
+
+    /**
+     * Takes a connection from the idle connections, validating it if it has
+     * been idle for long.
+     * 
+     * @return a usable connection, or null if there are no idle connections
+     */
+    private Connection takeIdleConnection() {
+        evictIdleConnections();
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (System.currentTimeMillis() - idle.idleSince < validationInterval
+                    || isValid(idle.connection)) {
+                return idle.connection;
+            }
+            close(idle.connection);
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeout);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes connections that have been idle for longer than the maximum idle
+     * time, keeping the minimum number of idle connections. Runs at most once
+     * per minute, or per maximum idle time if shorter.
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        long last = lastEviction.get();
+        if (now - last < Math.min(maxIdleTime, 60000)
+                || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        while (idleCount.get() > minIdleConnections) {
+            /*
+             * Only remove the connection that has been idle for the longest
+             * time once it is known to be expired, so that a concurrent
+             * reservation never sees a live connection missing.
+             */
+            IdleConnection oldest = idleConnections.peekLast();
+            if (oldest == null || now - oldest.idleSince <= maxIdleTime) {
+                break;
+            }
+            if (idleConnections.removeLastOccurrence(oldest)) {
+                idleCount.decrementAndGet();
+                close(oldest.connection);
+            }
+        }
+    }
+
+    @Override
+    public void releaseConnection(Connection conn) {
+        if (conn == null || reservedConnections.remove(conn) == null) {
+            return;
+        }
+        try {
+            /* Try to roll back if necessary */
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+            }
+            idleConnections.offerFirst(new IdleConnection(conn, System
+                    .currentTimeMillis()));
+            idleCount.incrementAndGet();
+        } catch (SQLException e) {
+            /* Roll back failed, close and discard connection */
+            close(conn);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection createConnection() throws SQLException {
+        Connection c = DriverManager.getConnection(connectionUri, userName,
+                password);
+        c.setAutoCommit(false);
+        if (driverName.toLowerCase().contains("mysql")) {
+            try {
+                Statement s = c.createStatement();
+                s.execute("SET SESSION sql_mode = 'ANSI'");
+                s.close();
+            } catch (Exception e) {
+                // Failed to set ansi mode; continue
+            }
+        }
+        return c;
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Nothing needs to be done
+        }
+    }
+
+    @Override
+    public void destroy() {
+        IdleConnection idle;
+        while ((idle = idleConnections.poll()) != null) {
+            idleCount.decrementAndGet();
+            close(idle.connection);
+        }
+        for (Connection c : reservedConnections.keySet()) {
+            close(c);
+        }
+    }
+
+    /**
+     * Sets the maximum time to wait for a connection to be released when all
+     * connections are in use. The default is 5000 milliseconds.
+     * 
+     * @param waitTimeout
+     *            the timeout in milliseconds, 0 to not wait
+     */
+    public void setWaitTimeout(long waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * @return the maximum time in milliseconds to wait for a connection
+     */
+    public long getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    /**
+     * Sets the time after which an idle connection is validated before it is
+     * reserved. The default is 30000 milliseconds.
+     * 
+     * @param validationInterval
+     *            the idle time in milliseconds, 0 to always validate
+     */
+    public void setValidationInterval(long validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+
+    /**
+     * @return the idle time in milliseconds after which a connection is
+     *         validated
+     */
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    /**
+     * Sets the time to wait for the database when validating a connection.
+     * The default is 5 seconds.
+     * 
+     * @param validationTimeout
+     *            the timeout in seconds, 0 for no timeout
+     * @see Connection#isValid(int)
+     */
+    public void setValidationTimeout(int validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    /**
+     * @return the timeout in seconds for validating a connection
+     */
+    public int getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    /**
+     * Sets the time after which idle connections exceeding the minimum number
+     * of idle connections are closed. The default is 600000 milliseconds.
+     * 
+     * @param maxIdleTime
+     *            the idle time in milliseconds
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * @return the idle time in milliseconds after which idle connections are
+     *         closed
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * @return the number of connections currently reserved
+     */
+    public int getActiveConnectionCount() {
+        return reservedConnections.size();
+    }
+
+    /**
+     * @return the number of open connections currently available
+     */
+    public int getIdleConnectionCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * @return the number of times a thread has had to wait for a connection
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return the number of times waiting for a connection has timed out
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * @return the total time in milliseconds threads have waited for a
+     *         connection
+     */
+    public long getTotalWaitTime() {
+        return totalWaitTime.get();
+    }
+
+    /**
+     * @return the longest time in milliseconds a thread has waited for a
+     *         connection
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        initialize();
+    }
+
+}
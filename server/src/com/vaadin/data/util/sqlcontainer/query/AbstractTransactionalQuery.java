@@ -43,6 +43,16 @@ abstract class AbstractTransactionalQuery implements Serializable {
         this.connectionPool = connectionPool;
     }
 
+    /**
+     * Returns the connection pool used by this query.
+     * 
+     * @return the connection pool
+     * @since 7.1
+     */
+    public JDBCConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     /**
      * Reserves a connection with auto-commit off if no transaction is in
      * progress.
@@ -22,10 +22,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EventObject;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -33,7 +35,11 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.And;
 import com.vaadin.data.util.filter.Compare.Equal;
+import com.vaadin.data.util.filter.Compare.Greater;
+import com.vaadin.data.util.filter.Compare.Less;
+import com.vaadin.data.util.filter.Or;
 import com.vaadin.data.util.sqlcontainer.ColumnProperty;
 import com.vaadin.data.util.sqlcontainer.OptimisticLockException;
 import com.vaadin.data.util.sqlcontainer.RowId;
@@ -73,6 +79,9 @@ public class TableQuery extends AbstractTransactionalQuery implements
     private List<Filter> filters;
     private List<OrderBy> orderBys;
 
+    /** True if keyset pagination is used, false for offset based paging */
+    private boolean keysetPaginationEnabled = false;
+
     /** SQLGenerator instance to use for generating queries */
     private SQLGenerator sqlGenerator;
 
@@ -233,23 +242,200 @@ public class TableQuery extends AbstractTransactionalQuery implements
      */
     @Override
     public ResultSet getResults(int offset, int pagelength) throws SQLException {
-        StatementHelper sh;
-        /*
-         * If no ordering is explicitly set, results will be ordered by the
-         * first primary key column.
-         */
-        if (orderBys == null || orderBys.isEmpty()) {
-            List<OrderBy> ob = new ArrayList<OrderBy>();
-            for (int i = 0; i < primaryKeyColumns.size(); i++) {
-                ob.add(new OrderBy(primaryKeyColumns.get(i), true));
+        return executeQuery(getQueryStatement(offset, pagelength));
+    }
+
+    /**
+     * Generates the query used by {@link #getResults(int, int)} with the
+     * current filters and ordering. The query can be executed later, e.g. on
+     * another connection from the connection pool.
+     * 
+     * @param offset
+     *            the index of the first row to fetch
+     * @param pagelength
+     *            the number of rows to fetch, or 0 to fetch all rows
+     * @return the query string and parameter values for a PreparedStatement
+     * @since 7.1
+     */
+    public StatementHelper getQueryStatement(int offset, int pagelength) {
+        return sqlGenerator.generateSelectQuery(getFullTableName(), filters,
+                getEffectiveOrderBys(), offset, pagelength, null);
+    }
+
+    /**
+     * Fetches the rows that follow a given row in the current ordering using
+     * keyset (seek) pagination. Instead of making the database skip all the
+     * rows preceding the page, the query is limited to the rows that come
+     * after the given key values in the ordering. Rows with null values in the
+     * keyset columns are never returned. Requires keyset pagination to be
+     * enabled.
+     * 
+     * @param keyValues
+     *            the values of the {@link #getKeysetColumns() keyset columns}
+     *            in the row after which to start, none of which may be null
+     * @param offset
+     *            the number of rows to skip after the given row
+     * @param pagelength
+     *            the number of rows to fetch, or 0 to fetch all following rows
+     * @return the result set of the query
+     * @throws SQLException
+     * @see #setKeysetPaginationEnabled(boolean)
+     * @since 7.1
+     */
+    public ResultSet getResultsAfter(Object[] keyValues, int offset,
+            int pagelength) throws SQLException {
+        return executeQuery(getQueryStatementAfter(keyValues, offset,
+                pagelength));
+    }
+
+    /**
+     * Generates the query used by
+     * {@link #getResultsAfter(Object[], int, int)} with the current filters
+     * and ordering. The query can be executed later, e.g. on another
+     * connection from the connection pool.
+     * 
+     * @param keyValues
+     *            the values of the {@link #getKeysetColumns() keyset columns}
+     *            in the row after which to start, none of which may be null
+     * @param offset
+     *            the number of rows to skip after the given row
+     * @param pagelength
+     *            the number of rows to fetch, or 0 to fetch all following rows
+     * @return the query string and parameter values for a PreparedStatement
+     * @since 7.1
+     */
+    public StatementHelper getQueryStatementAfter(Object[] keyValues,
+            int offset, int pagelength) {
+        if (!keysetPaginationEnabled) {
+            throw new IllegalStateException(
+                    "Keyset pagination is not enabled");
+        }
+        List<OrderBy> ob = getEffectiveOrderBys();
+        if (keyValues == null || keyValues.length != ob.size()) {
+            throw new IllegalArgumentException("Expected " + ob.size()
+                    + " key values");
+        }
+        List<Filter> seekFilters = new ArrayList<Filter>();
+        if (filters != null) {
+            seekFilters.addAll(filters);
+        }
+        seekFilters.add(createSeekFilter(ob, keyValues));
+        return sqlGenerator.generateSelectQuery(getFullTableName(),
+                seekFilters, ob, offset, pagelength, null);
+    }
+
+    /**
+     * Creates a filter that matches the rows following the given key values in
+     * the given ordering. The filter is of the form
+     * <code>k1 &gt; v1 OR (k1 = v1 AND k2 &gt; v2) OR ...</code> instead of a row
+     * value comparison, which is not supported by all databases and does not
+     * allow mixing ascending and descending ordering. The comparisons never
+     * match null values, so rows with nulls in the ordering columns are not
+     * included.
+     */
+    private static Filter createSeekFilter(List<OrderBy> orderBys,
+            Object[] keyValues) {
+        Filter[] alternatives = new Filter[orderBys.size()];
+        for (int i = 0; i < orderBys.size(); i++) {
+            Filter[] conditions = new Filter[i + 1];
+            for (int j = 0; j < i; j++) {
+                conditions[j] = new Equal(orderBys.get(j).getColumn(),
+                        keyValues[j]);
             }
-            sh = sqlGenerator.generateSelectQuery(getFullTableName(), filters,
-                    ob, offset, pagelength, null);
-        } else {
-            sh = sqlGenerator.generateSelectQuery(getFullTableName(), filters,
-                    orderBys, offset, pagelength, null);
+            OrderBy o = orderBys.get(i);
+            if (keyValues[i] == null) {
+                throw new IllegalArgumentException(
+                        "Key values must not be null");
+            }
+            if (o.isAscending()) {
+                conditions[i] = new Greater(o.getColumn(), keyValues[i]);
+            } else {
+                conditions[i] = new Less(o.getColumn(), keyValues[i]);
+            }
+            alternatives[i] = i == 0 ? conditions[0] : new And(conditions);
+        }
+        return alternatives.length == 1 ? alternatives[0] : new Or(
+                alternatives);
+    }
+
+    /**
+     * Returns the ordering used for fetching the results. If no ordering is
+     * explicitly set, results are ordered by the primary key columns. With
+     * keyset pagination, the primary key columns are always included to make
+     * the ordering unambiguous.
+     */
+    private List<OrderBy> getEffectiveOrderBys() {
+        List<OrderBy> ob = new ArrayList<OrderBy>();
+        if (orderBys != null) {
+            ob.addAll(orderBys);
+        }
+        if (ob.isEmpty() || keysetPaginationEnabled) {
+            for (String column : primaryKeyColumns) {
+                boolean ordered = false;
+                for (OrderBy o : ob) {
+                    if (o.getColumn().equals(column)) {
+                        ordered = true;
+                        break;
+                    }
+                }
+                if (!ordered) {
+                    ob.add(new OrderBy(column, true));
+                }
+            }
+        }
+        return ob;
+    }
+
+    /**
+     * Returns the columns that identify the position of a row in the results
+     * with keyset pagination: the columns of the current ordering followed by
+     * the primary key columns that are not part of the ordering.
+     * 
+     * @return the keyset columns, not null
+     * @see #getResultsAfter(Object[], int, int)
+     * @since 7.1
+     */
+    public List<String> getKeysetColumns() {
+        List<String> columns = new ArrayList<String>();
+        for (OrderBy o : getEffectiveOrderBys()) {
+            columns.add(o.getColumn());
         }
-        return executeQuery(sh);
+        return columns;
+    }
+
+    /**
+     * Sets whether keyset (seek) pagination is used. When enabled,
+     * {@link com.vaadin.data.util.sqlcontainer.SQLContainer SQLContainer}
+     * fetches the pages following an already fetched page with
+     * {@link #getResultsAfter(Object[], int, int)}, which keeps fetching pages
+     * far from the beginning of the results as fast as fetching the first
+     * page.
+     * <p>
+     * The results are then always ordered by the primary key columns after
+     * the explicitly set ordering. The rows following a given row can only be
+     * sought in columns that cannot contain null values, as the position of
+     * nulls in the ordering depends on the database. SQLContainer therefore
+     * uses offset based paging when the results are ordered by a nullable
+     * column.
+     * 
+     * @param keysetPaginationEnabled
+     *            true to enable keyset pagination, false to use offset based
+     *            paging
+     * @since 7.1
+     */
+    public void setKeysetPaginationEnabled(boolean keysetPaginationEnabled) {
+        this.keysetPaginationEnabled = keysetPaginationEnabled;
+    }
+
+    /**
+     * Returns whether keyset (seek) pagination is used.
+     * 
+     * @return true if keyset pagination is enabled
+     * @see #setKeysetPaginationEnabled(boolean)
+     * @since 7.1
+     */
+    public boolean isKeysetPaginationEnabled() {
+        return keysetPaginationEnabled;
     }
 
     /*
@@ -295,6 +481,132 @@ public class TableQuery extends AbstractTransactionalQuery implements
         return result;
     }
 
+    /**
+     * Stores the given rows in the database. Has the same effect as calling
+     * {@link #storeRow(RowItem)} for each row, but uses one prepared statement
+     * for all rows with the same SQL and sends updates of rows in a table
+     * without a version column to the database in batches.
+     * <p>
+     * Inserts are executed one row at a time to retrieve the generated keys
+     * of each row, and so are updates in a table with a version column, to
+     * check the version of each row. Nothing is batched for a table with a
+     * version column. The rows are stored using the active transaction, or a
+     * new connection if no transaction is active.
+     * <p>
+     * This method does not call {@link #storeRow(RowItem)}, so overriding it
+     * does not affect the rows stored by this method.
+     * 
+     * @param rows
+     *            the rows to store, not null
+     * @return the number of affected rows for each given row, in the same
+     *         order. Rows in a batch for which the JDBC driver does not report
+     *         the count have the value {@link Statement#SUCCESS_NO_INFO}.
+     * @throws SQLException
+     * @throws OptimisticLockException
+     *             if a version column is set and a row has been changed by
+     *             someone else
+     * @since 7.1
+     */
+    public int[] storeRows(List<RowItem> rows) throws SQLException {
+        if (rows == null) {
+            throw new IllegalArgumentException(
+                    "Rows argument must be non-null.");
+        }
+        int[] results = new int[rows.size()];
+        Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+        /* Indexes of the rows in each batch, by SQL */
+        Map<String, List<Integer>> batches = new LinkedHashMap<String, List<Integer>>();
+        Connection connection = getConnection();
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                RowItem row = rows.get(i);
+                if (row == null) {
+                    throw new IllegalArgumentException(
+                            "Row argument must be non-null.");
+                }
+                setVersionColumnFlagInProperty(row);
+                boolean insert = row.getId() instanceof TemporaryRowId;
+                StatementHelper sh;
+                if (insert) {
+                    sh = sqlGenerator.generateInsertQuery(getFullTableName(),
+                            row);
+                } else {
+                    sh = sqlGenerator.generateUpdateQuery(getFullTableName(),
+                            row);
+                }
+                String sql = sh.getQueryString();
+                PreparedStatement pstmt = statements.get(sql);
+                if (pstmt == null) {
+                    if (insert) {
+                        pstmt = connection.prepareStatement(sql,
+                                primaryKeyColumns.toArray(new String[0]));
+                    } else {
+                        pstmt = connection.prepareStatement(sql);
+                    }
+                    statements.put(sql, pstmt);
+                }
+                pstmt.clearParameters();
+                sh.setParameterValuesToStatement(pstmt);
+                if (insert) {
+                    getLogger().log(Level.FINE, "DB -> {0}", sql);
+                    results[i] = pstmt.executeUpdate();
+                    ResultSet genKeys = pstmt.getGeneratedKeys();
+                    try {
+                        RowId newId = getNewRowId(row, genKeys);
+                        bufferedEvents.add(new RowIdChangeEvent(row.getId(),
+                                newId));
+                    } finally {
+                        genKeys.close();
+                    }
+                } else if (versionColumn != null) {
+                    getLogger().log(Level.FINE, "DB -> {0}", sql);
+                    results[i] = pstmt.executeUpdate();
+                    if (results[i] == 0) {
+                        throw new OptimisticLockException(
+                                "Someone else changed the row that was being updated.",
+                                row.getId());
+                    }
+                } else {
+                    pstmt.addBatch();
+                    List<Integer> batch = batches.get(sql);
+                    if (batch == null) {
+                        batch = new ArrayList<Integer>();
+                        batches.put(sql, batch);
+                    }
+                    batch.add(i);
+                }
+            }
+            for (Map.Entry<String, List<Integer>> batch : batches.entrySet()) {
+                getLogger().log(Level.FINE, "DB -> {0} ({1} rows)",
+                        new Object[] { batch.getKey(),
+                                batch.getValue().size() });
+                int[] counts = statements.get(batch.getKey()).executeBatch();
+                List<Integer> indexes = batch.getValue();
+                for (int i = 0; i < indexes.size(); i++) {
+                    if (counts[i] == Statement.EXECUTE_FAILED) {
+                        throw new SQLException("Update failed for row with ID: "
+                                + rows.get(indexes.get(i)).getId());
+                    }
+                    results[indexes.get(i)] = counts[i];
+                }
+            }
+        } finally {
+            try {
+                for (PreparedStatement pstmt : statements.values()) {
+                    try {
+                        pstmt.close();
+                    } catch (SQLException e) {
+                        getLogger().log(Level.WARNING,
+                                "Failed to close statement", e);
+                    }
+                }
+            } finally {
+                releaseConnection(connection, null, null);
+            }
+        }
+        return results;
+    }
+
     private void setVersionColumnFlagInProperty(RowItem row) {
         ColumnProperty versionProperty = (ColumnProperty) row
                 .getItemProperty(versionColumn);
@@ -24,6 +24,7 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +72,17 @@ public class StatementHelper implements Serializable {
         dataTypes.put(parameters.size() - 1, type);
     }
 
+    /**
+     * Returns the parameter values of the statement, in the order they are
+     * set to the PreparedStatement.
+     * 
+     * @return an unmodifiable list of the parameter values
+     * @since 7.1
+     */
+    public List<Object> getParameterValues() {
+        return Collections.unmodifiableList(parameters);
+    }
+
     public void setParameterValuesToStatement(PreparedStatement pstmt)
             throws SQLException {
         for (int i = 0; i < parameters.size(); i++) {
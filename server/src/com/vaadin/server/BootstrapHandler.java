@@ -32,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.DataNode;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.DocumentType;
@@ -61,6 +62,102 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
      */
     public static final String IGNORE_RESTART_PARAM = "ignoreRestart";
 
+    /*
+     * Placeholders for the per request parts of a cached bootstrap template.
+     * Only contain characters that are not escaped when the HTML is
+     * generated.
+     */
+    private static final String APP_ID_PLACEHOLDER = "__vaadin_bootstrap_app_id__";
+    private static final String MAIN_SCRIPT_PLACEHOLDER = "__vaadin_bootstrap_main_script__";
+
+    /**
+     * Maximum number of different bootstrap templates to cache. The least
+     * recently used template is discarded when the limit is exceeded.
+     */
+    private static final int MAX_CACHED_TEMPLATES = 100;
+
+    /**
+     * Bootstrap HTML generated once for a combination of UI class, theme, page
+     * title and other properties that are the same for many requests. The per
+     * request app id and main script contents are spliced in between the
+     * static parts when the page is served.
+     */
+    @SuppressWarnings("serial")
+    private static class BootstrapTemplate implements Serializable {
+        private final Map<String, Object> headers;
+        private final String[] parts;
+        private final boolean[] partFollowedByAppId;
+
+        public BootstrapTemplate(String html, Map<String, Object> headers) {
+            this.headers = headers;
+            List<String> partList = new ArrayList<String>();
+            List<Boolean> appIdList = new ArrayList<Boolean>();
+            int start = 0;
+            while (true) {
+                int appIdIndex = html.indexOf(APP_ID_PLACEHOLDER, start);
+                int scriptIndex = html.indexOf(MAIN_SCRIPT_PLACEHOLDER, start);
+                if (appIdIndex == -1 && scriptIndex == -1) {
+                    partList.add(html.substring(start));
+                    break;
+                }
+                boolean appId = scriptIndex == -1
+                        || (appIdIndex != -1 && appIdIndex < scriptIndex);
+                int index = appId ? appIdIndex : scriptIndex;
+                partList.add(html.substring(start, index));
+                appIdList.add(Boolean.valueOf(appId));
+                start = index
+                        + (appId ? APP_ID_PLACEHOLDER : MAIN_SCRIPT_PLACEHOLDER)
+                                .length();
+            }
+            parts = partList.toArray(new String[partList.size()]);
+            partFollowedByAppId = new boolean[appIdList.size()];
+            for (int i = 0; i < partFollowedByAppId.length; i++) {
+                partFollowedByAppId[i] = appIdList.get(i).booleanValue();
+            }
+        }
+
+        public String getHtml(String appId, String mainScriptContents) {
+            // The app id is only used as the id attribute of the main div
+            String escapedAppId = escapeAttributeValue(appId);
+            StringBuilder html = new StringBuilder();
+            for (int i = 0; i < parts.length; i++) {
+                html.append(parts[i]);
+                if (i < partFollowedByAppId.length) {
+                    html.append(partFollowedByAppId[i] ? escapedAppId
+                            : mainScriptContents);
+                }
+            }
+            return html.toString();
+        }
+
+        public Map<String, Object> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * Escapes an attribute value in the same way as jsoup does when the
+         * HTML is generated from the DOM.
+         */
+        private static String escapeAttributeValue(String value) {
+            String html = new Attribute("id", value).html();
+            return html.substring("id=\"".length(), html.length() - 1);
+        }
+    }
+
+    /*
+     * Access ordered so that the least recently used template is evicted
+     * first. All access must be synchronized on the map.
+     */
+    @SuppressWarnings("serial")
+    private final Map<String, BootstrapTemplate> templateCache = new LinkedHashMap<String, BootstrapTemplate>(
+            16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<String, BootstrapTemplate> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+        }
+    };
+
     protected class BootstrapContext implements Serializable {
 
         private final VaadinResponse response;
@@ -71,6 +168,12 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         private String appId;
         private PushMode pushMode;
 
+        /*
+         * True if this context is used for generating a bootstrap template
+         * with placeholders for the per request parts
+         */
+        private boolean template = false;
+
         public BootstrapContext(VaadinResponse response,
                 BootstrapFragmentResponse bootstrapResponse) {
             this.response = response;
@@ -132,6 +235,9 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         }
 
         public String getAppId() {
+            if (template) {
+                return APP_ID_PLACEHOLDER;
+            }
             if (appId == null) {
                 appId = getRequest().getService().getMainDivId(getSession(),
                         getRequest(), getUIClass());
@@ -185,14 +291,20 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
                     new BootstrapFragmentResponse(this, request, session,
                             uiClass, new ArrayList<Node>(), provider));
 
-            setupMainDiv(context);
-
-            BootstrapFragmentResponse fragmentResponse = context
-                    .getBootstrapResponse();
-            session.modifyBootstrapResponse(fragmentResponse);
-
-            String html = getBootstrapHtml(context);
+            String html;
+            Map<String, Object> headers;
+            if (session.hasBootstrapListeners()) {
+                // The listeners need the DOM, generate everything
+                headers = new LinkedHashMap<String, Object>();
+                html = generateBootstrapHtml(context, headers);
+            } else {
+                BootstrapTemplate template = getBootstrapTemplate(context);
+                headers = template.getHeaders();
+                html = template.getHtml(context.getAppId(),
+                        getMainScriptContents(context));
+            }
 
+            sendBootstrapHeaders(response, headers);
             writeBootstrapPage(response, html);
         } catch (JSONException e) {
             writeError(response, e);
@@ -201,16 +313,115 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         return true;
     }
 
-    private String getBootstrapHtml(BootstrapContext context) {
+    /**
+     * Generates the bootstrap HTML by building the DOM and letting the
+     * bootstrap listeners modify it.
+     * 
+     * @param context
+     *            the bootstrap context
+     * @param headers
+     *            map to which the HTTP headers that should be sent are added
+     * @return the bootstrap HTML
+     * @throws IOException
+     * @throws JSONException
+     */
+    private String generateBootstrapHtml(BootstrapContext context,
+            Map<String, Object> headers) throws IOException, JSONException {
+        setupMainDiv(context);
+
+        BootstrapFragmentResponse fragmentResponse = context
+                .getBootstrapResponse();
+        context.getSession().modifyBootstrapResponse(fragmentResponse);
+
+        return getBootstrapHtml(context, headers);
+    }
+
+    /**
+     * Gets a cached bootstrap template matching the given context, generating
+     * it if there is none.
+     * 
+     * @param context
+     *            the bootstrap context
+     * @return the bootstrap template
+     * @throws IOException
+     * @throws JSONException
+     */
+    private BootstrapTemplate getBootstrapTemplate(BootstrapContext context)
+            throws IOException, JSONException {
+        String key = getBootstrapTemplateKey(context);
+        BootstrapTemplate template;
+        synchronized (templateCache) {
+            template = templateCache.get(key);
+        }
+        if (template == null) {
+            BootstrapFragmentResponse fragmentResponse = context
+                    .getBootstrapResponse();
+            BootstrapContext templateContext = new BootstrapContext(
+                    context.getResponse(), new BootstrapFragmentResponse(this,
+                            context.getRequest(), context.getSession(),
+                            context.getUIClass(), new ArrayList<Node>(),
+                            fragmentResponse.getUIProvider()));
+            templateContext.template = true;
+
+            Map<String, Object> headers = new LinkedHashMap<String, Object>();
+            String html = generateBootstrapHtml(templateContext, headers);
+            template = new BootstrapTemplate(html, headers);
+
+            /*
+             * The template is generated without holding the lock of the cache,
+             * so the same template may be generated concurrently for another
+             * session. Everything that affects the template is part of the
+             * key, so the template that is put last is equivalent.
+             */
+            synchronized (templateCache) {
+                templateCache.put(key, template);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Gets a key identifying all the values that affect the bootstrap HTML,
+     * except for the app id and the main script contents which are generated
+     * separately for each request.
+     */
+    private String getBootstrapTemplateKey(BootstrapContext context) {
+        VaadinRequest request = context.getRequest();
+        VaadinService vaadinService = request.getService();
+
+        StringBuilder key = new StringBuilder();
+        key.append(context.getUIClass().getName());
+        key.append('\n').append(vaadinService.isStandalone(request));
+        key.append('\n').append(vaadinService.getStaticFileLocation(request));
+        key.append('\n').append(context.getPushMode().isEnabled());
+        key.append('\n').append(getMainDivStyle(context));
+
+        String themeName = context.getThemeName();
+        key.append('\n').append(themeName);
+        if (themeName != null) {
+            key.append('\n').append(getThemeUri(context, themeName));
+        }
+
+        if (vaadinService.isStandalone(request)) {
+            String title = context
+                    .getBootstrapResponse()
+                    .getUIProvider()
+                    .getPageTitle(
+                            new UICreateEvent(request, context.getUIClass()));
+            key.append('\n').append(title);
+        }
+        return key.toString();
+    }
+
+    private String getBootstrapHtml(BootstrapContext context,
+            Map<String, Object> headers) {
         VaadinRequest request = context.getRequest();
-        VaadinResponse response = context.getResponse();
         VaadinService vaadinService = request.getService();
 
         BootstrapFragmentResponse fragmentResponse = context
                 .getBootstrapResponse();
 
         if (vaadinService.isStandalone(request)) {
-            Map<String, Object> headers = new LinkedHashMap<String, Object>();
             Document document = Document.createShell("");
             BootstrapPageResponse pageResponse = new BootstrapPageResponse(
                     this, request, context.getSession(), context.getUIClass(),
@@ -224,8 +435,6 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
             setupStandaloneDocument(context, pageResponse);
             context.getSession().modifyBootstrapResponse(pageResponse);
 
-            sendBootstrapHeaders(response, headers);
-
             return document.outerHtml();
         } else {
             StringBuilder sb = new StringBuilder();
@@ -399,6 +608,25 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         Element mainScriptTag = new Element(Tag.valueOf("script"), "").attr(
                 "type", "text/javascript");
 
+        String mainScriptContents;
+        if (context.template) {
+            mainScriptContents = MAIN_SCRIPT_PLACEHOLDER;
+        } else {
+            mainScriptContents = getMainScriptContents(context);
+        }
+        mainScriptTag.appendChild(new DataNode(mainScriptContents,
+                mainScriptTag.baseUri()));
+        fragmentNodes.add(mainScriptTag);
+
+    }
+
+    private String getMainScriptContents(BootstrapContext context)
+            throws IOException, JSONException {
+        VaadinRequest request = context.getRequest();
+        String bootstrapLocation = request.getService()
+                .getStaticFileLocation(request)
+                + "/VAADIN/vaadinBootstrap.js";
+
         StringBuilder builder = new StringBuilder();
         builder.append("//<![CDATA[\n");
         builder.append("if (!window.vaadin) alert("
@@ -408,10 +636,7 @@ public abstract class BootstrapHandler extends SynchronizedRequestHandler {
         appendMainScriptTagContents(context, builder);
 
         builder.append("//]]>");
-        mainScriptTag.appendChild(new DataNode(builder.toString(),
-                mainScriptTag.baseUri()));
-        fragmentNodes.add(mainScriptTag);
-
+        return builder.toString();
     }
 
     protected void appendMainScriptTagContents(BootstrapContext context,
@@ -16,7 +16,11 @@
 
 package com.vaadin.server;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.net.URL;
+import java.net.URLConnection;
 
 import com.vaadin.ui.LegacyWindow;
 import com.vaadin.ui.UI;
@@ -102,9 +106,32 @@ public class ClassResource implements ConnectorResource, Serializable {
 
     @Override
     public DownloadStream getStream() {
-        final DownloadStream ds = new DownloadStream(getAssociatedClass()
-                .getResourceAsStream(resourceName), getMIMEType(),
+        InputStream stream = null;
+        long lastModified = 0;
+        int length = -1;
+        URL url = getAssociatedClass().getResource(resourceName);
+        if (url != null) {
+            try {
+                URLConnection connection = url.openConnection();
+                stream = connection.getInputStream();
+                lastModified = connection.getLastModified();
+                length = connection.getContentLength();
+            } catch (IOException e) {
+                // Same as getResourceAsStream, the resource is not found
+                stream = null;
+            }
+        }
+
+        final DownloadStream ds = new DownloadStream(stream, getMIMEType(),
                 getFilename());
+        if (stream != null && length >= 0) {
+            // Makes it possible to serve byte ranges of the resource
+            ds.setParameter("Content-Length", String.valueOf(length));
+            if (lastModified > 0) {
+                ds.setParameter("ETag",
+                        DownloadStream.createEtag(lastModified, length));
+            }
+        }
         ds.setBufferSize(getBufferSize());
         ds.setCacheTime(getCacheTime());
         return ds;
@@ -56,6 +56,18 @@ public interface Constants {
             + "and \"automatic\". The default of \"disabled\" will be used.\n"
             + "===========================================================";
 
+    static final String WARNING_UIDL_COMPRESSION_THRESHOLD_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: uidlCompressionThreshold has been set to a non integer value "
+            + "in web.xml. UIDL responses will not be compressed.\n"
+            + "===========================================================";
+
+    static final String WARNING_STATIC_RESOURCE_CACHE_SIZE_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: staticResourceCacheSize has been set to a non integer value "
+            + "in web.xml. Static resources will not be cached in memory.\n"
+            + "===========================================================";
+
     static final String WIDGETSET_MISMATCH_INFO = "\n"
             + "=================================================================\n"
             + "The widgetset in use does not seem to be built for the Vaadin\n"
@@ -124,6 +136,8 @@ public interface Constants {
     static final String SERVLET_PARAMETER_PUSH_MODE = "pushMode";
     static final String SERVLET_PARAMETER_UI_PROVIDER = "UIProvider";
     static final String SERVLET_PARAMETER_LEGACY_PROPERTY_TOSTRING = "legacyPropertyToString";
+    static final String SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD = "uidlCompressionThreshold";
+    static final String SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE = "staticResourceCacheSize";
 
     // Configurable parameter names
     static final String PARAMETER_VAADIN_RESOURCES = "Resources";
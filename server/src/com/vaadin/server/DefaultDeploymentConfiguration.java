@@ -45,6 +45,20 @@ public class DefaultDeploymentConfiguration implements DeploymentConfiguration {
      */
     public static final boolean DEFAULT_CLOSE_IDLE_SESSIONS = false;
 
+    /**
+     * Default value for the
+     * {@link Constants#SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD} parameter
+     * = {@value} .
+     */
+    public static final int DEFAULT_UIDL_COMPRESSION_THRESHOLD = -1;
+
+    /**
+     * Default value for the
+     * {@link Constants#SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE} parameter
+     * = {@value} .
+     */
+    public static final int DEFAULT_STATIC_RESOURCE_CACHE_SIZE = 0;
+
     /**
      * Default value for {@link #getLegacyPropertyToStringMode()} =
      * {@link LegacyProperyToStringMode#WARNING}.
@@ -82,6 +96,8 @@ public class DefaultDeploymentConfiguration implements DeploymentConfiguration {
         checkHeartbeatInterval();
         checkCloseIdleSessions();
         checkPushMode();
+        checkUidlCompressionThreshold();
+        checkStaticResourceCacheSize();
         checkLegacyPropertyToString();
     }
 
@@ -312,6 +328,36 @@ public class DefaultDeploymentConfiguration implements DeploymentConfiguration {
         }
     }
 
+    /**
+     * Log a warning if the UIDL compression threshold is not a number. The
+     * threshold itself is read when the initial UIDL response is written.
+     */
+    private void checkUidlCompressionThreshold() {
+        try {
+            Integer.parseInt(getApplicationOrSystemProperty(
+                    Constants.SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD,
+                    Integer.toString(DEFAULT_UIDL_COMPRESSION_THRESHOLD)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    Constants.WARNING_UIDL_COMPRESSION_THRESHOLD_NOT_NUMERIC);
+        }
+    }
+
+    /**
+     * Log a warning if the static resource cache size is not a number. The
+     * size itself is read when the servlet is initialized.
+     */
+    private void checkStaticResourceCacheSize() {
+        try {
+            Integer.parseInt(getApplicationOrSystemProperty(
+                    Constants.SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE,
+                    Integer.toString(DEFAULT_STATIC_RESOURCE_CACHE_SIZE)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    Constants.WARNING_STATIC_RESOURCE_CACHE_SIZE_NOT_NUMERIC);
+        }
+    }
+
     private Logger getLogger() {
         return Logger.getLogger(getClass().getName());
     }
@@ -16,10 +16,14 @@
 
 package com.vaadin.server;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -234,6 +238,15 @@ public class DownloadStream implements Serializable {
      * response. If there's is a parameter named <code>Location</code>, a
      * redirect (302 Moved temporarily) is sent instead of the contents of this
      * stream.
+     * <p>
+     * If the length of the content is known, either from a
+     * <code>Content-Length</code> parameter or because the stream reads a file,
+     * a single byte range requested using the <code>Range</code> header is
+     * sent as a partial response. If there is a parameter named
+     * <code>ETag</code>, a matching <code>If-None-Match</code> request header
+     * results in a 304 Not Modified response, and the ETag is used for
+     * validating <code>If-Range</code> requests.
+     * </p>
      * 
      * @param request
      *            the request for which the response should be written
@@ -271,12 +284,15 @@ public class DownloadStream implements Serializable {
                 response.setCacheTime(getCacheTime());
 
                 // Copy download stream parameters directly
-                // to HTTP headers.
+                // to HTTP headers. Content-Length is set below as it depends
+                // on the range that is sent.
                 final Iterator<String> i = getParameterNames();
                 if (i != null) {
                     while (i.hasNext()) {
                         final String param = i.next();
-                        response.setHeader(param, getParameter(param));
+                        if (!"Content-Length".equals(param)) {
+                            response.setHeader(param, getParameter(param));
+                        }
                     }
                 }
 
@@ -291,24 +307,53 @@ public class DownloadStream implements Serializable {
                             contentDispositionValue);
                 }
 
-                int bufferSize = getBufferSize();
-                if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
-                    bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+                String etag = getParameter("ETag");
+                if (etag != null
+                        && matchesEtag(request.getHeader("If-None-Match"),
+                                etag)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
                 }
-                final byte[] buffer = new byte[bufferSize];
-                int bytesRead = 0;
 
-                out = response.getOutputStream();
-
-                long totalWritten = 0;
-                while ((bytesRead = data.read(buffer)) > 0) {
-                    out.write(buffer, 0, bytesRead);
+                long start = 0;
+                long count = -1;
+                long length = getContentLength(data);
+                long[] range = null;
+                if (length >= 0) {
+                    response.setHeader("Accept-Ranges", "bytes");
+                    range = getRequestedRange(request, length, etag);
+                }
 
-                    totalWritten += bytesRead;
-                    if (totalWritten >= buffer.length) {
-                        // Avoid chunked encoding for small resources
-                        out.flush();
+                if (range == null) {
+                    // Not a range request, send everything
+                    count = length;
+                    if (length >= 0) {
+                        response.setHeader("Content-Length",
+                                String.valueOf(length));
+                    } else if (getParameter("Content-Length") != null) {
+                        response.setHeader("Content-Length",
+                                getParameter("Content-Length"));
                     }
+                } else if (range.length == 0) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader("Content-Range", "bytes */" + length);
+                    return;
+                } else {
+                    start = range[0];
+                    count = range[1] - range[0] + 1;
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader("Content-Range", "bytes " + range[0]
+                            + "-" + range[1] + "/" + length);
+                    response.setHeader("Content-Length", String.valueOf(count));
+                }
+
+                out = response.getOutputStream();
+
+                if (data instanceof FileInputStream && count >= 0) {
+                    writeFileChannel(((FileInputStream) data).getChannel(),
+                            start, count, out);
+                } else {
+                    writeStream(data, start, count, out);
                 }
             } finally {
                 tryToCloseStream(out);
@@ -317,6 +362,206 @@ public class DownloadStream implements Serializable {
         }
     }
 
+    /**
+     * Returns the total length of the data in the given stream, if known.
+     * Uses the <code>Content-Length</code> parameter if it is set, otherwise
+     * the size of the file if the stream reads a file.
+     * 
+     * @param data
+     *            the stream of this download stream
+     * @return the length of the data in bytes, or -1 if it is not known
+     * @throws IOException
+     */
+    private long getContentLength(InputStream data) throws IOException {
+        String contentLength = getParameter("Content-Length");
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        } else if (data instanceof FileInputStream) {
+            FileChannel channel = ((FileInputStream) data).getChannel();
+            return channel.size() - channel.position();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses the <code>Range</code> header of the request. Only a single byte
+     * range is supported, requests for multiple ranges are served the full
+     * content. The range is also ignored if the request has an
+     * <code>If-Range</code> header that does not match the ETag of this
+     * stream.
+     * 
+     * @param request
+     *            the request to get the range from
+     * @param length
+     *            the total length of the content
+     * @param etag
+     *            the ETag of the content, or <code>null</code> if not known
+     * @return <code>null</code> if the full content should be sent, an empty
+     *         array if the range can not be satisfied, otherwise an array
+     *         with the first and last byte positions of the range, inclusive
+     */
+    private static long[] getRequestedRange(VaadinRequest request,
+            long length, String etag) {
+        String range = request.getHeader("Range");
+        if (range == null || !range.startsWith("bytes=")
+                || range.indexOf(',') != -1) {
+            return null;
+        }
+
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && (etag == null || !ifRange.equals(etag))) {
+            // The content has changed or can't be verified, send everything
+            return null;
+        }
+
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                // Suffix range: the last N bytes
+                long suffixLength = Long.parseLong(spec.substring(1));
+                if (suffixLength == 0) {
+                    return new long[0];
+                }
+                first = Math.max(0, length - suffixLength);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                if (dash == spec.length() - 1) {
+                    last = length - 1;
+                } else {
+                    last = Math.min(length - 1,
+                            Long.parseLong(spec.substring(dash + 1)));
+                }
+            }
+            if (first < 0 || first >= length) {
+                return new long[0];
+            } else if (last < first) {
+                // Syntactically invalid, ignore the header
+                return null;
+            }
+            return new long[] { first, last };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether an <code>If-None-Match</code> header matches the given
+     * ETag.
+     */
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes a part of a file to the output stream. Lets the file channel
+     * transfer the data instead of copying it through a buffer of our own.
+     */
+    private static void writeFileChannel(FileChannel channel, long start,
+            long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = channel.position() + start;
+        long end = position + count;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position,
+                    target);
+            if (transferred <= 0) {
+                // The file has been truncated
+                break;
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Writes the data in the input stream to the output stream.
+     * 
+     * @param data
+     *            the stream to read from
+     * @param start
+     *            the number of bytes to skip before writing
+     * @param count
+     *            the number of bytes to write, or -1 to write all the
+     *            remaining data
+     * @param out
+     *            the stream to write to
+     * @throws IOException
+     */
+    private void writeStream(InputStream data, long start, long count,
+            OutputStream out) throws IOException {
+        int bufferSize = getBufferSize();
+        if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
+            bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+        }
+        final byte[] buffer = new byte[bufferSize];
+        int bytesRead = 0;
+
+        long skipped = 0;
+        while (skipped < start) {
+            long n = data.skip(start - skipped);
+            if (n <= 0) {
+                // skip() may give up early, read instead
+                bytesRead = data.read(buffer, 0,
+                        (int) Math.min(buffer.length, start - skipped));
+                if (bytesRead < 0) {
+                    return;
+                }
+                n = bytesRead;
+            }
+            skipped += n;
+        }
+
+        long remaining = count < 0 ? Long.MAX_VALUE : count;
+        long totalWritten = 0;
+        while (remaining > 0
+                && (bytesRead = data.read(buffer, 0,
+                        (int) Math.min(buffer.length, remaining))) > 0) {
+            out.write(buffer, 0, bytesRead);
+            remaining -= bytesRead;
+
+            totalWritten += bytesRead;
+            if (totalWritten >= buffer.length) {
+                // Avoid chunked encoding for small resources
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Creates a strong ETag for content identified by its modification
+     * timestamp and length, such as a file.
+     * 
+     * @param lastModified
+     *            the modification timestamp of the content
+     * @param length
+     *            the length of the content in bytes
+     * @return an ETag, including the quotes
+     */
+    static String createEtag(long lastModified, long length) {
+        return "\"" + Long.toHexString(lastModified) + "-"
+                + Long.toHexString(length) + "\"";
+    }
+
     /**
      * Helper method that tries to close an output stream and ignores any
      * exceptions.
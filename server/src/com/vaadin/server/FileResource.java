@@ -65,8 +65,10 @@ public class FileResource implements ConnectorResource {
         try {
             final DownloadStream ds = new DownloadStream(new FileInputStream(
                     sourceFile), getMIMEType(), getFilename());
-            ds.setParameter("Content-Length",
-                    String.valueOf(sourceFile.length()));
+            long length = sourceFile.length();
+            ds.setParameter("Content-Length", String.valueOf(length));
+            ds.setParameter("ETag",
+                    DownloadStream.createEtag(sourceFile.lastModified(), length));
 
             ds.setCacheTime(cacheTime);
             return ds;
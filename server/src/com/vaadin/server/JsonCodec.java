@@ -20,6 +20,7 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -74,6 +75,7 @@ public class JsonCodec implements Serializable {
 
         public FieldProperty(Field field) {
             this.field = field;
+            suppressAccessChecks(field);
         }
 
         @Override
@@ -113,29 +115,36 @@ public class JsonCodec implements Serializable {
     }
 
     private static class MethodProperty implements BeanProperty {
-        private final PropertyDescriptor pd;
+        private final Method readMethod;
+        private final Method writeMethod;
+        private final String name;
 
         public MethodProperty(PropertyDescriptor pd) {
-            this.pd = pd;
+            // PropertyDescriptor only keeps soft references to the methods,
+            // so resolve them once instead of for each invocation
+            readMethod = pd.getReadMethod();
+            writeMethod = pd.getWriteMethod();
+            suppressAccessChecks(readMethod);
+            suppressAccessChecks(writeMethod);
+
+            String fieldName = writeMethod.getName().substring(3);
+            name = Character.toLowerCase(fieldName.charAt(0))
+                    + fieldName.substring(1);
         }
 
         @Override
         public Object getValue(Object bean) throws Exception {
-            Method readMethod = pd.getReadMethod();
             return readMethod.invoke(bean);
         }
 
         @Override
         public void setValue(Object bean, Object value) throws Exception {
-            pd.getWriteMethod().invoke(bean, value);
+            writeMethod.invoke(bean, value);
         }
 
         @Override
         public String getName() {
-            String fieldName = pd.getWriteMethod().getName().substring(3);
-            fieldName = Character.toLowerCase(fieldName.charAt(0))
-                    + fieldName.substring(1);
-            return fieldName;
+            return name;
         }
 
         public static Collection<MethodProperty> find(Class<?> type)
@@ -155,9 +164,115 @@ public class JsonCodec implements Serializable {
 
         @Override
         public Type getType() {
-            return pd.getReadMethod().getGenericReturnType();
+            return readMethod.getGenericReturnType();
+        }
+
+    }
+
+    /**
+     * Disables the Java language access checks for a field or method that is
+     * only used for reading or writing bean properties. This makes reflective
+     * access notably faster. If a security manager does not allow this, the
+     * regular access checks are used instead.
+     * 
+     * @param accessible
+     *            the field or method to use without access checks
+     */
+    private static void suppressAccessChecks(AccessibleObject accessible) {
+        try {
+            accessible.setAccessible(true);
+        } catch (SecurityException e) {
+            // Use the slower path with access checks
+        }
+    }
+
+    /**
+     * Encodes and decodes objects of a given bean type by looping through its
+     * properties. The property names and types are resolved once when the
+     * codec is created instead of for each encoded or decoded object. The
+     * property values are still read and written using reflection, only the
+     * lookups are cached.
+     */
+    @SuppressWarnings("serial")
+    private static class ObjectCodec implements Serializable {
+        private final BeanProperty[] properties;
+        private final String[] names;
+        private final Type[] types;
+        private final Class<?> type;
+        private String duplicateName = null;
+
+        public ObjectCodec(Class<?> type) throws IntrospectionException {
+            this.type = type;
+            Collection<BeanProperty> typeProperties = getProperties(type);
+            int count = typeProperties.size();
+
+            properties = typeProperties.toArray(new BeanProperty[count]);
+            names = new String[count];
+            types = new Type[count];
+
+            Set<String> usedNames = new HashSet<String>();
+            for (int i = 0; i < count; i++) {
+                String fieldName = properties[i].getName();
+                if (!usedNames.add(fieldName) && duplicateName == null) {
+                    duplicateName = fieldName;
+                }
+                names[i] = fieldName;
+                // We can't use PropertyDescriptor.getPropertyType() as it does
+                // not support generics
+                types[i] = properties[i].getType();
+            }
+        }
+
+        public EncodeResult encode(Object value, JSONObject referenceValue,
+                ConnectorTracker connectorTracker) throws Exception {
+            if (duplicateName != null) {
+                throw new RuntimeException(
+                        "Can't encode "
+                                + type.getName()
+                                + " as it has multiple properties with the name "
+                                + duplicateName.toLowerCase()
+                                + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
+            }
+
+            JSONObject encoded = new JSONObject();
+            JSONObject diff = new JSONObject();
+
+            for (int i = 0; i < properties.length; i++) {
+                String fieldName = names[i];
+                Object fieldValue = properties[i].getValue(value);
+
+                Object fieldReference;
+                if (referenceValue != null) {
+                    fieldReference = referenceValue.get(fieldName);
+                    if (JSONObject.NULL.equals(fieldReference)) {
+                        fieldReference = null;
+                    }
+                } else {
+                    fieldReference = null;
+                }
+
+                EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                        fieldReference, types[i], connectorTracker);
+                encoded.put(fieldName, encodeResult.getEncodedValue());
+
+                if (!jsonEquals(encodeResult.getEncodedValue(), fieldReference)) {
+                    diff.put(fieldName, encodeResult.getDiffOrValue());
+                }
+            }
+
+            return new EncodeResult(encoded, diff);
         }
 
+        public void decode(Object decodedObject, JSONObject serializedObject,
+                ConnectorTracker connectorTracker) throws Exception {
+            for (int i = 0; i < properties.length; i++) {
+                Object encodedFieldValue = serializedObject.get(names[i]);
+                Object decodedFieldValue = decodeInternalOrCustomType(
+                        types[i], encodedFieldValue, connectorTracker);
+
+                properties[i].setValue(decodedObject, decodedFieldValue);
+            }
+        }
     }
 
     /**
@@ -168,6 +283,14 @@ public class JsonCodec implements Serializable {
      */
     private static ConcurrentMap<Class<?>, Collection<BeanProperty>> typePropertyCache = new ConcurrentHashMap<Class<?>, Collection<BeanProperty>>();
 
+    /**
+     * Cache the object codec for a given type to avoid resolving property
+     * names and types for each encoded or decoded object. Will be used from
+     * any thread that happens to process Vaadin requests, so it must be
+     * protected from corruption caused by concurrent access.
+     */
+    private static ConcurrentMap<Class<?>, ObjectCodec> typeCodecCache = new ConcurrentHashMap<Class<?>, ObjectCodec>();
+
     private static Map<Class<?>, String> typeToTransportType = new HashMap<Class<?>, String>();
 
     /**
@@ -593,16 +716,8 @@ public class JsonCodec implements Serializable {
 
         try {
             Object decodedObject = targetClass.newInstance();
-            for (BeanProperty property : getProperties(targetClass)) {
-
-                String fieldName = property.getName();
-                Object encodedFieldValue = serializedObject.get(fieldName);
-                Type fieldType = property.getType();
-                Object decodedFieldValue = decodeInternalOrCustomType(
-                        fieldType, encodedFieldValue, connectorTracker);
-
-                property.setValue(decodedObject, decodedFieldValue);
-            }
+            getObjectCodec(targetClass).decode(decodedObject,
+                    serializedObject, connectorTracker);
 
             return decodedObject;
         } catch (Exception e) {
@@ -707,56 +822,36 @@ public class JsonCodec implements Serializable {
         return properties;
     }
 
+    private static ObjectCodec getObjectCodec(Class<?> type)
+            throws IntrospectionException {
+        ObjectCodec codec = typeCodecCache.get(type);
+        if (codec == null) {
+            codec = new ObjectCodec(type);
+            // A codec is not modified after it has been created, so one
+            // created concurrently for the same type can safely be replaced
+            typeCodecCache.put(type, codec);
+        }
+        return codec;
+    }
+
     private static EncodeResult encodeObject(Object value, Class<?> valueType,
             JSONObject referenceValue, ConnectorTracker connectorTracker)
             throws JSONException {
-        JSONObject encoded = new JSONObject();
-        JSONObject diff = new JSONObject();
-
         try {
-            for (BeanProperty property : getProperties(valueType)) {
-                String fieldName = property.getName();
-                // We can't use PropertyDescriptor.getPropertyType() as it does
-                // not support generics
-                Type fieldType = property.getType();
-                Object fieldValue = property.getValue(value);
-
-                if (encoded.has(fieldName)) {
-                    throw new RuntimeException(
-                            "Can't encode "
-                                    + valueType.getName()
-                                    + " as it has multiple properties with the name "
-                                    + fieldName.toLowerCase()
-                                    + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
-                }
-
-                Object fieldReference;
-                if (referenceValue != null) {
-                    fieldReference = referenceValue.get(fieldName);
-                    if (JSONObject.NULL.equals(fieldReference)) {
-                        fieldReference = null;
-                    }
-                } else {
-                    fieldReference = null;
-                }
-
-                EncodeResult encodeResult = encode(fieldValue, fieldReference,
-                        fieldType, connectorTracker);
-                encoded.put(fieldName, encodeResult.getEncodedValue());
-
-                if (!jsonEquals(encodeResult.getEncodedValue(), fieldReference)) {
-                    diff.put(fieldName, encodeResult.getDiffOrValue());
-                }
-            }
+            return getObjectCodec(valueType).encode(value, referenceValue,
+                    connectorTracker);
         } catch (Exception e) {
             // TODO: Should exceptions be handled in a different way?
             throw new JSONException(e);
         }
-        return new EncodeResult(encoded, diff);
     }
 
     /**
      * Compares the value with the reference. If they match, returns true.
+     * <p>
+     * Strings, booleans and numbers of the same type are compared directly and
+     * JSON arrays and objects are compared structurally, element by element.
+     * Other values are compared using their string representation.
      * 
      * @param fieldValue
      * @param referenceValue
@@ -774,11 +869,52 @@ public class JsonCodec implements Serializable {
             return true;
         } else if (fieldValue == null || referenceValue == null) {
             return false;
+        } else if (fieldValue.getClass() != referenceValue.getClass()) {
+            return fieldValue.toString().equals(referenceValue.toString());
+        } else if (fieldValue instanceof JSONArray) {
+            return jsonArrayEquals((JSONArray) fieldValue,
+                    (JSONArray) referenceValue);
+        } else if (fieldValue instanceof JSONObject) {
+            return jsonObjectEquals((JSONObject) fieldValue,
+                    (JSONObject) referenceValue);
+        } else if (fieldValue instanceof String
+                || fieldValue instanceof Boolean
+                || fieldValue instanceof Number) {
+            return fieldValue.equals(referenceValue);
         } else {
             return fieldValue.toString().equals(referenceValue.toString());
         }
     }
 
+    private static boolean jsonArrayEquals(JSONArray fieldValue,
+            JSONArray referenceValue) {
+        int length = fieldValue.length();
+        if (length != referenceValue.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!jsonEquals(fieldValue.opt(i), referenceValue.opt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean jsonObjectEquals(JSONObject fieldValue,
+            JSONObject referenceValue) {
+        if (fieldValue.length() != referenceValue.length()) {
+            return false;
+        }
+        for (Iterator<?> keys = fieldValue.keys(); keys.hasNext();) {
+            String key = (String) keys.next();
+            if (!referenceValue.has(key)
+                    || !jsonEquals(fieldValue.opt(key), referenceValue.opt(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static EncodeResult encodeEnum(Enum<?> e,
             ConnectorTracker connectorTracker) throws JSONException {
         return new EncodeResult(e.name());
@@ -24,6 +24,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -71,6 +73,15 @@ public class LegacyCommunicationManager implements Serializable {
     // TODO Refactor (#11413)
     private Map<String, Class<?>> publishedFileContexts = new HashMap<String, Class<?>>();
 
+    /**
+     * Cache of the encoded default state of each state type, used as the diff
+     * reference when a connector is sent to the client for the first time.
+     * Shared between all sessions and used from any thread that happens to
+     * process Vaadin requests, so it must be protected from corruption caused
+     * by concurrent access. The cached values are never modified.
+     */
+    private static final ConcurrentMap<Class<? extends SharedState>, JSONObject> referenceDiffStates = new ConcurrentHashMap<Class<? extends SharedState>, JSONObject>();
+
     /**
      * TODO New constructor - document me!
      * 
@@ -99,18 +110,7 @@ public class LegacyCommunicationManager implements Serializable {
         if (diffState == null && supportsDiffState) {
             // Use an empty state object as reference for full
             // repaints
-
-            try {
-                SharedState referenceState = stateType.newInstance();
-                EncodeResult encodeResult = JsonCodec.encode(referenceState,
-                        null, stateType, uI.getConnectorTracker());
-                diffState = encodeResult.getEncodedValue();
-            } catch (Exception e) {
-                getLogger()
-                        .log(Level.WARNING,
-                                "Error creating reference object for state of type {0}",
-                                stateType.getName());
-            }
+            diffState = getReferenceDiffState(stateType, connectorTracker);
         }
         EncodeResult encodeResult = JsonCodec.encode(state, diffState,
                 stateType, uI.getConnectorTracker());
@@ -121,6 +121,45 @@ public class LegacyCommunicationManager implements Serializable {
         return (JSONObject) encodeResult.getDiff();
     }
 
+    /**
+     * Gets the encoded default state of the given state type. The encoding is
+     * only done once for each state type and is then reused for all connectors
+     * in all sessions, so the returned object must not be modified.
+     * 
+     * @param stateType
+     *            the state type to get the reference state for
+     * @param connectorTracker
+     *            the connector tracker to use when encoding the state
+     * @return the encoded default state, or <code>null</code> if the state
+     *         could not be encoded
+     */
+    static JSONObject getReferenceDiffState(
+            Class<? extends SharedState> stateType,
+            ConnectorTracker connectorTracker) {
+        JSONObject referenceDiffState = referenceDiffStates.get(stateType);
+        if (referenceDiffState != null) {
+            return referenceDiffState;
+        }
+
+        try {
+            SharedState referenceState = stateType.newInstance();
+            EncodeResult encodeResult = JsonCodec.encode(referenceState, null,
+                    stateType, connectorTracker);
+            referenceDiffState = (JSONObject) encodeResult.getEncodedValue();
+        } catch (Exception e) {
+            getLogger().log(Level.WARNING,
+                    "Error creating reference object for state of type {0}",
+                    stateType.getName());
+            return null;
+        }
+
+        // Threads racing for a new state type may each encode it, but only the
+        // first result is stored so that every caller gets the same instance
+        JSONObject previous = referenceDiffStates.putIfAbsent(stateType,
+                referenceDiffState);
+        return previous != null ? previous : referenceDiffState;
+    }
+
     /**
      * Resolves a dependency URI, registering the URI with this
      * {@code LegacyCommunicationManager} if needed and returns a fully
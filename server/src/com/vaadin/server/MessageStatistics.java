@@ -0,0 +1,108 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * Keeps track of the number and size of the UIDL and push messages that have
+ * been sent to the client for a single UI. The raw size is the size of the
+ * UTF-8 encoded message and the sent size is the size after any compression.
+ * 
+ * @see VaadinSession#getMessageStatistics(com.vaadin.ui.UI)
+ * 
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+@SuppressWarnings("serial")
+public class MessageStatistics implements Serializable {
+
+    private long messageCount = 0;
+
+    private long rawBytes = 0;
+
+    private long sentBytes = 0;
+
+    /**
+     * Records a message that has been sent to the client.
+     * 
+     * @param rawBytes
+     *            the size of the message before compression, in bytes
+     * @param sentBytes
+     *            the number of bytes actually sent
+     */
+    public void addMessage(long rawBytes, long sentBytes) {
+        messageCount++;
+        this.rawBytes += rawBytes;
+        this.sentBytes += sentBytes;
+    }
+
+    /**
+     * @return The number of messages that have been sent to the client.
+     */
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * @return The total size of the sent messages before compression, in
+     *         bytes.
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * @return The total number of bytes actually sent, after compression.
+     */
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * Gets the number of bytes needed for encoding the given characters as
+     * UTF-8 without actually encoding them.
+     * 
+     * @param chars
+     *            the characters to measure
+     * @return the length of the UTF-8 encoded characters, in bytes
+     */
+    public static long getUtf8Length(CharSequence chars) {
+        long length = 0;
+        int count = chars.length();
+        for (int i = 0; i < count; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < count
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                // Surrogate pair encoded as one four byte sequence
+                length += 4;
+                i++;
+            } else if (Character.isHighSurrogate(c)
+                    || Character.isLowSurrogate(c)) {
+                // Unpaired surrogate replaced by '?' in the encoded output
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A bounded in-memory cache for static resources served from the VAADIN
+ * directory. Each resource is read once and kept as a byte array along with a
+ * gzip compressed variant, if compressing makes it smaller, and an ETag for
+ * each variant. The least recently used resources are evicted when the total
+ * size of the cached resources would exceed the configured maximum.
+ * <p>
+ * Resources are assumed not to change while cached, so the cache should only
+ * be used in production mode. Resources that are too large to be cached are
+ * remembered so that they are not read again on every request.
+ * 
+ * @see Constants#SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE
+ * 
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+@SuppressWarnings("serial")
+class StaticResourceCache implements Serializable {
+
+    /**
+     * A cached static resource.
+     */
+    @SuppressWarnings("serial")
+    static class CachedResource implements Serializable {
+        private final byte[] data;
+        private final byte[] gzippedData;
+        private final long lastModified;
+        private final String etag;
+        private final String gzippedEtag;
+
+        private CachedResource(byte[] data, byte[] gzippedData,
+                long lastModified) {
+            this.data = data;
+            this.gzippedData = gzippedData;
+            this.lastModified = lastModified;
+            etag = DownloadStream.createEtag(lastModified, data.length);
+            // The compressed variant is a different representation
+            gzippedEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+
+        /**
+         * @return the contents of the resource
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * @return the gzip compressed contents of the resource, or null if
+         *         compressing does not make the resource smaller
+         */
+        public byte[] getGzippedData() {
+            return gzippedData;
+        }
+
+        /**
+         * @return the modification timestamp of the resource with the
+         *         milliseconds removed, or 0 if not known
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return a strong ETag for the uncompressed contents
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return a strong ETag for the gzip compressed contents
+         */
+        public String getGzippedEtag() {
+            return gzippedEtag;
+        }
+
+        private int getSize() {
+            return data.length
+                    + (gzippedData == null ? 0 : gzippedData.length);
+        }
+    }
+
+    private final int maxSize;
+
+    private final LinkedHashMap<String, CachedResource> resources = new LinkedHashMap<String, CachedResource>(
+            16, 0.75f, true);
+
+    /**
+     * The file names of resources that are too large to be cached. Only
+     * resources that have been found are added, so the set is bounded by the
+     * contents of the VAADIN directory.
+     */
+    private final Set<String> tooLarge = new HashSet<String>();
+
+    private int size = 0;
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param maxSize
+     *            the maximum total size of the cached resources, in bytes
+     */
+    public StaticResourceCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets a resource from the cache, reading it into the cache if it is not
+     * already there.
+     * 
+     * @param filename
+     *            the requested file name, used as the cache key
+     * @param resourceUrl
+     *            the URL to read the resource from
+     * @param mimetype
+     *            the MIME type of the resource, used for deciding whether it is
+     *            worth compressing, or null if not known
+     * @return the cached resource, or null if the resource is too large to be
+     *         cached
+     * @throws IOException
+     *             if reading the resource fails
+     */
+    public CachedResource get(String filename, URL resourceUrl,
+            String mimetype) throws IOException {
+        synchronized (resources) {
+            if (tooLarge.contains(filename)) {
+                return null;
+            }
+            CachedResource resource = resources.get(filename);
+            if (resource != null) {
+                return resource;
+            }
+        }
+
+        /*
+         * The resource is read without holding the lock so that cached
+         * resources can be served meanwhile. If several threads read the same
+         * resource, the last one replaces the others in the cache, and the
+         * size of the replaced resource is deducted below.
+         */
+        CachedResource resource = read(resourceUrl, mimetype);
+
+        synchronized (resources) {
+            if (resource == null) {
+                tooLarge.add(filename);
+                return null;
+            }
+            CachedResource previous = resources.put(filename, resource);
+            if (previous != null) {
+                size -= previous.getSize();
+            }
+            size += resource.getSize();
+
+            Iterator<CachedResource> iterator = resources.values().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                CachedResource eldest = iterator.next();
+                if (eldest != resource) {
+                    size -= eldest.getSize();
+                    iterator.remove();
+                }
+            }
+        }
+        return resource;
+    }
+
+    private CachedResource read(URL resourceUrl, String mimetype)
+            throws IOException {
+        URLConnection connection = resourceUrl.openConnection();
+        InputStream is = connection.getInputStream();
+        byte[] data;
+        long lastModified;
+        try {
+            lastModified = connection.getLastModified();
+            int length = connection.getContentLength();
+            if (length > maxSize) {
+                return null;
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    length > 0 ? length : Constants.DEFAULT_BUFFER_SIZE);
+            byte[] buffer = new byte[Constants.DEFAULT_BUFFER_SIZE];
+            int bytes;
+            while ((bytes = is.read(buffer)) >= 0) {
+                out.write(buffer, 0, bytes);
+                if (out.size() > maxSize) {
+                    return null;
+                }
+            }
+            data = out.toByteArray();
+        } finally {
+            is.close();
+        }
+
+        byte[] gzippedData = null;
+        if (isCompressible(mimetype)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    data.length / 2);
+            GZIPOutputStream gzip = new GZIPOutputStream(out);
+            gzip.write(data);
+            gzip.close();
+            if (out.size() < data.length) {
+                gzippedData = out.toByteArray();
+            }
+        }
+
+        // Browsers only send whole seconds in If-Modified-Since
+        lastModified = lastModified - lastModified % 1000;
+        return new CachedResource(data, gzippedData, lastModified);
+    }
+
+    private static boolean isCompressible(String mimetype) {
+        if (mimetype == null) {
+            return false;
+        }
+        return mimetype.startsWith("text/") || mimetype.contains("javascript")
+                || mimetype.contains("json") || mimetype.contains("xml");
+    }
+}
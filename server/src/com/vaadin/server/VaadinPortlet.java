@@ -319,6 +319,20 @@ public class VaadinPortlet extends GenericPortlet implements Constants,
         CurrentInstance.clearAll();
     }
 
+    /**
+     * Called by the portlet container when the portlet is taken out of
+     * service. Stops the thread running deferred pushes.
+     * 
+     * @see javax.portlet.GenericPortlet#destroy()
+     */
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (vaadinService != null) {
+            vaadinService.getPushScheduler().shutdown();
+        }
+    }
+
     protected void portletInitialized() throws PortletException {
 
     }
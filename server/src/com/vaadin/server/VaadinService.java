@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -54,6 +55,7 @@ import com.vaadin.server.VaadinSession.FutureAccess;
 import com.vaadin.server.communication.FileUploadHandler;
 import com.vaadin.server.communication.HeartbeatHandler;
 import com.vaadin.server.communication.PublishedFileHandler;
+import com.vaadin.server.communication.PushScheduler;
 import com.vaadin.server.communication.SessionRequestHandler;
 import com.vaadin.server.communication.UidlRequestHandler;
 import com.vaadin.shared.JsonConstants;
@@ -118,6 +120,8 @@ public abstract class VaadinService implements Serializable {
      */
     private boolean initialized = false;
 
+    private final PushScheduler pushScheduler = new PushScheduler();
+
     /**
      * Creates a new vaadin service based on a deployment configuration
      * 
@@ -1612,6 +1616,19 @@ public abstract class VaadinService implements Serializable {
         return true;
     }
 
+    /**
+     * Gets the scheduler that runs the deferred pushes of the UIs of this
+     * service. The scheduler is shut down when the servlet or portlet is
+     * destroyed. This method is meant for internal use.
+     * 
+     * @since 7.1
+     * 
+     * @return the push scheduler of this service
+     */
+    public PushScheduler getPushScheduler() {
+        return pushScheduler;
+    }
+
     /**
      * Implementation for {@link VaadinSession#access(Runnable)}. This method is
      * implemented here instead of in {@link VaadinSession} to enable overriding
@@ -1632,6 +1649,32 @@ public abstract class VaadinService implements Serializable {
         FutureAccess future = new FutureAccess(session, runnable);
         session.getPendingAccessQueue().add(future);
 
+        /*
+         * Only the first thread enqueuing a task since the queue was last
+         * purged needs to make sure the queue gets purged. Other threads
+         * enqueuing tasks in the meantime can back out right away without
+         * touching the session lock, as their tasks will be run by the same
+         * purge.
+         */
+        if (session.schedulePendingAccessPurge()) {
+            ensureAccessQueuePurged(session);
+        }
+
+        return future;
+    }
+
+    /**
+     * Makes sure the pending access queue is purged for the provided session.
+     * If the session is currently locked by the current thread or some other
+     * thread, the queue will be purged when the session is unlocked. If the
+     * lock is not held by any thread, it is acquired and the queue is purged
+     * right away.
+     * 
+     * @since 7.1
+     * @param session
+     *            the session for which the access queue should be purged
+     */
+    public void ensureAccessQueuePurged(VaadinSession session) {
         /*
          * If no thread is currently holding the lock, pending changes for UIs
          * with automatic push would not be processed and pushed until the next
@@ -1654,8 +1697,6 @@ public abstract class VaadinService implements Serializable {
         } catch (InterruptedException e) {
             // Just ignore
         }
-
-        return future;
     }
 
     /**
@@ -1672,24 +1713,58 @@ public abstract class VaadinService implements Serializable {
     public void runPendingAccessTasks(VaadinSession session) {
         assert session.hasLock();
 
-        if (session.getPendingAccessQueue().isEmpty()) {
+        Queue<FutureAccess> pendingAccessQueue = session
+                .getPendingAccessQueue();
+        if (pendingAccessQueue.isEmpty()) {
+            session.clearPendingAccessPurge();
             return;
         }
 
         Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
                 .getInstances(false);
 
+        /*
+         * Tasks enqueued by the same thread typically share the same current
+         * instances. The current instances are only reset when they differ
+         * from the ones of the previously run task, or when the previous task
+         * has changed them, so that a batch of tasks from e.g. a single
+         * background thread is run with one reset. The entries are compared
+         * by the instances they contain, as e.g. UI.access() restores the
+         * same instances as new entries after each task.
+         */
+        Map<Class<?>, CurrentInstance> runningInstances = null;
+        Map<Class<?>, CurrentInstance> restoredInstances = null;
+
         FutureAccess pendingAccess;
         try {
-            while ((pendingAccess = session.getPendingAccessQueue().poll()) != null) {
-                if (!pendingAccess.isCancelled()) {
-                    CurrentInstance.clearAll();
-                    CurrentInstance.restoreInstances(pendingAccess
-                            .getCurrentInstances());
-                    CurrentInstance.setCurrent(session);
-                    pendingAccess.run();
+            do {
+                while ((pendingAccess = pendingAccessQueue.poll()) != null) {
+                    if (!pendingAccess.isCancelled()) {
+                        Map<Class<?>, CurrentInstance> instances = pendingAccess
+                                .getCurrentInstances();
+                        if (runningInstances == null
+                                || !CurrentInstance.containSameInstances(
+                                        runningInstances, instances)
+                                || !CurrentInstance.containSameInstances(
+                                        restoredInstances,
+                                        CurrentInstance.getInstances(false))) {
+                            CurrentInstance.clearAll();
+                            CurrentInstance.restoreInstances(instances);
+                            CurrentInstance.setCurrent(session);
+                            runningInstances = instances;
+                            restoredInstances = CurrentInstance
+                                    .getInstances(false);
+                        }
+                        pendingAccess.run();
+                    }
                 }
-            }
+                /*
+                 * Clear the flag only after the queue has been drained, and
+                 * check the queue again as a task may have been enqueued by a
+                 * thread that saw the flag still set.
+                 */
+                session.clearPendingAccessPurge();
+            } while (!pendingAccessQueue.isEmpty());
         } finally {
             CurrentInstance.clearAll();
             CurrentInstance.restoreInstances(oldInstances);
@@ -16,20 +16,26 @@
 package com.vaadin.server;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,13 +51,78 @@ import com.vaadin.sass.internal.ScssStylesheet;
 import com.vaadin.server.communication.ServletUIInitHandler;
 import com.vaadin.shared.JsonConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.util.ContentEncodingHelper;
 import com.vaadin.util.CurrentInstance;
 
 @SuppressWarnings("serial")
 public class VaadinServlet extends HttpServlet implements Constants {
 
+    /**
+     * Theme stylesheet compiled on the fly from SCSS, together with the
+     * modification timestamps of the source files it was compiled from.
+     */
+    private static class CompiledScss implements Serializable {
+        private final String css;
+        private final String etag;
+        private final List<String> sourceUris;
+        private final long[] sourceTimestamps;
+        private final long lastModified;
+
+        public CompiledScss(String css, List<String> sourceUris) {
+            this.css = css;
+            this.sourceUris = new ArrayList<String>(sourceUris);
+            sourceTimestamps = new long[sourceUris.size()];
+            long latest = 0;
+            for (int i = 0; i < sourceTimestamps.length; i++) {
+                sourceTimestamps[i] = getLastModified(sourceUris.get(i));
+                latest = Math.max(latest, sourceTimestamps[i]);
+            }
+            // Browsers only send whole seconds in If-Modified-Since
+            lastModified = latest - latest % 1000;
+            etag = "\"" + Integer.toHexString(css.hashCode()) + "-"
+                    + Integer.toHexString(css.length()) + "\"";
+        }
+
+        /**
+         * Checks whether none of the source files have been modified, added or
+         * removed since the stylesheet was compiled.
+         */
+        public boolean isUpToDate() {
+            for (int i = 0; i < sourceTimestamps.length; i++) {
+                if (getLastModified(sourceUris.get(i)) != sourceTimestamps[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the modification timestamp of a source file in the file
+         * system or 0 if it is not a file in the file system. Sources loaded
+         * from the class path can not change without a redeploy.
+         */
+        private static long getLastModified(String uri) {
+            File file = new File(uri);
+            if (file.isFile()) {
+                return file.lastModified();
+            }
+            return 0;
+        }
+    }
+
     private VaadinServletService servletService;
 
+    /**
+     * In-memory cache for static resources in the VAADIN directory, or null if
+     * the cache is not enabled.
+     */
+    private StaticResourceCache staticResourceCache;
+
+    /**
+     * Themes compiled on the fly, by the requested CSS file name.
+     */
+    private final Map<String, CompiledScss> compiledScssCache = new ConcurrentHashMap<String, CompiledScss>();
+
     /**
      * Called by the servlet container to indicate to a servlet that the servlet
      * is being placed into service.
@@ -96,6 +167,14 @@ public class VaadinServlet extends HttpServlet implements Constants {
         } catch (ServiceException e) {
             throw new ServletException("Could not initialize VaadinServlet", e);
         }
+        int staticResourceCacheSize = getStaticResourceCacheSize(deploymentConfiguration);
+        if (deploymentConfiguration.isProductionMode()
+                && staticResourceCacheSize > 0
+                && !isWriteStaticResourceResponseOverridden()) {
+            staticResourceCache = new StaticResourceCache(
+                    staticResourceCacheSize);
+        }
+
         // Sets current service even though there are no request and response
         servletService.setCurrentInstances(null, null);
 
@@ -150,6 +229,20 @@ public class VaadinServlet extends HttpServlet implements Constants {
         // Empty by default
     }
 
+    /**
+     * Called by the servlet container when the servlet is taken out of
+     * service. Stops the thread running deferred pushes.
+     * 
+     * @see javax.servlet.GenericServlet#destroy()
+     */
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (servletService != null) {
+            servletService.getPushScheduler().shutdown();
+        }
+    }
+
     /**
      * Gets the currently used Vaadin servlet. The current servlet is
      * automatically defined when initializing the servlet and when processing
@@ -490,13 +583,6 @@ public class VaadinServlet extends HttpServlet implements Constants {
             Arrays.asList(new Character[] { '&', '"', '\'', '<', '>', '(', ')',
                     ';' }));
 
-    /**
-     * Mutex for preventing to scss compilations to take place simultaneously.
-     * This is a workaround needed as the scss compiler currently is not thread
-     * safe (#10292).
-     */
-    private static final Object SCSS_MUTEX = new Object();
-
     /**
      * Returns the default theme. Must never return null.
      * 
@@ -623,6 +709,16 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return;
         }
 
+        if (staticResourceCache != null) {
+            StaticResourceCache.CachedResource cachedResource = staticResourceCache
+                    .get(filename, resourceUrl, sc.getMimeType(filename));
+            if (cachedResource != null) {
+                writeCachedStaticResourceResponse(filename, request, response,
+                        cachedResource);
+                return;
+            }
+        }
+
         // Find the modification timestamp
         long lastModifiedTime = 0;
         URLConnection connection = null;
@@ -670,31 +766,98 @@ public class VaadinServlet extends HttpServlet implements Constants {
         // Provide modification timestamp to the browser if it is known.
         if (lastModifiedTime > 0) {
             response.setDateHeader("Last-Modified", lastModifiedTime);
-            /*
-             * The browser is allowed to cache for 1 hour without checking if
-             * the file has changed. This forces browsers to fetch a new version
-             * when the Vaadin version is updated. This will cause more requests
-             * to the servlet than without this but for high volume sites the
-             * static files should never be served through the servlet. The
-             * cache timeout can be configured by setting the resourceCacheTime
-             * parameter in web.xml
-             */
-            int resourceCacheTime = getService().getDeploymentConfiguration()
-                    .getResourceCacheTime();
-            String cacheControl = "max-age="
-                    + String.valueOf(resourceCacheTime);
-            if (filename.contains("nocache")) {
-                cacheControl = "public, max-age=0, must-revalidate";
-            }
-            response.setHeader("Cache-Control", cacheControl);
+            setStaticResourceCacheControl(filename, response);
         }
 
         writeStaticResourceResponse(request, response, resourceUrl);
     }
 
+    private void setStaticResourceCacheControl(String filename,
+            HttpServletResponse response) {
+        /*
+         * The browser is allowed to cache for 1 hour without checking if the
+         * file has changed. This forces browsers to fetch a new version when
+         * the Vaadin version is updated. This will cause more requests to the
+         * servlet than without this but for high volume sites the static files
+         * should never be served through the servlet. The cache timeout can be
+         * configured by setting the resourceCacheTime parameter in web.xml
+         */
+        int resourceCacheTime = getService().getDeploymentConfiguration()
+                .getResourceCacheTime();
+        String cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
+        if (filename.contains("nocache")) {
+            cacheControl = "public, max-age=0, must-revalidate";
+        }
+        response.setHeader("Cache-Control", cacheControl);
+    }
+
+    /**
+     * Writes a static resource from the in-memory cache to the response. The
+     * gzip compressed variant of the resource is sent if the browser accepts
+     * it.
+     * 
+     * @param filename
+     *            The requested file name
+     * @param request
+     *            The request for the resource
+     * @param response
+     *            The response
+     * @param resource
+     *            The cached resource
+     * @throws IOException
+     */
+    private void writeCachedStaticResourceResponse(String filename,
+            HttpServletRequest request, HttpServletResponse response,
+            StaticResourceCache.CachedResource resource) throws IOException {
+        byte[] data = resource.getData();
+        String etag = resource.getEtag();
+        boolean gzipped = false;
+        if (resource.getGzippedData() != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+            if (ContentEncodingHelper.isEncodingAccepted(
+                    request.getHeader("Accept-Encoding"), "gzip")) {
+                data = resource.getGzippedData();
+                etag = resource.getGzippedEtag();
+                gzipped = true;
+            }
+        }
+
+        // Sent with 304 responses as well so that the browser can update them
+        response.setHeader("ETag", etag);
+        if (resource.getLastModified() > 0) {
+            response.setDateHeader("Last-Modified", resource.getLastModified());
+            setStaticResourceCacheControl(filename, response);
+        }
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null ? ifNoneMatch.contains(etag)
+                : browserHasNewestVersion(request, resource.getLastModified())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        final String mimetype = getServletContext().getMimeType(filename);
+        if (mimetype != null) {
+            response.setContentType(mimetype);
+        }
+        if (gzipped) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+
+        response.setContentLength(data.length);
+        final OutputStream os = response.getOutputStream();
+        os.write(data);
+        os.flush();
+    }
+
     /**
      * Writes the contents of the given resourceUrl in the response. Can be
      * overridden to add/modify response headers and similar.
+     * <p>
+     * Static resources are not kept in memory if this method is overridden,
+     * as the resources would then be served without calling it.
+     * 
+     * @see Constants#SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE
      * 
      * @param request
      *            The request for the resource
@@ -735,6 +898,52 @@ public class VaadinServlet extends HttpServlet implements Constants {
         }
     }
 
+    /**
+     * Reads the maximum total size of the static resources kept in memory. A
+     * value that is not a number is reported when the deployment configuration
+     * is created, so it is silently treated as the default here.
+     * 
+     * @param configuration
+     *            The deployment configuration to read the size from
+     * @return The maximum size in bytes, or 0 if static resources should not
+     *         be cached
+     */
+    private static int getStaticResourceCacheSize(
+            DeploymentConfiguration configuration) {
+        int defaultSize = DefaultDeploymentConfiguration.DEFAULT_STATIC_RESOURCE_CACHE_SIZE;
+        String size = configuration.getApplicationOrSystemProperty(
+                SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE,
+                Integer.toString(defaultSize));
+        try {
+            return Integer.parseInt(size);
+        } catch (NumberFormatException e) {
+            return defaultSize;
+        }
+    }
+
+    /**
+     * Checks whether a subclass overrides
+     * {@link #writeStaticResourceResponse(HttpServletRequest, HttpServletResponse, URL)}
+     * . The in-memory static resource cache is not used in that case.
+     * 
+     * @return true if the method is overridden, false otherwise
+     */
+    private boolean isWriteStaticResourceResponseOverridden() {
+        Class<?> servletClass = getClass();
+        while (servletClass != VaadinServlet.class) {
+            try {
+                servletClass.getDeclaredMethod("writeStaticResourceResponse",
+                        HttpServletRequest.class, HttpServletResponse.class,
+                        URL.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Try in superclass instead
+                servletClass = servletClass.getSuperclass();
+            }
+        }
+        return false;
+    }
+
     private URL findResourceURL(String filename, ServletContext sc)
             throws MalformedURLException {
         URL resourceUrl = sc.getResource(filename);
@@ -788,45 +997,83 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return true;
         }
 
-        synchronized (SCSS_MUTEX) {
-            String realFilename = sc.getRealPath(scssFilename);
-            ScssStylesheet scss = ScssStylesheet.get(realFilename);
-            if (scss == null) {
-                // Not a file in the file system (WebContent directory). Use the
-                // identifier directly (VAADIN/themes/.../styles.css) so
-                // ScssStylesheet will try using the class loader.
-                if (scssFilename.startsWith("/")) {
-                    scssFilename = scssFilename.substring(1);
-                }
-
-                scss = ScssStylesheet.get(scssFilename);
-            }
-
-            if (scss == null) {
-                getLogger()
-                        .log(Level.WARNING,
-                                "Scss file {0} exists but ScssStylesheet was not able to find it",
-                                scssFilename);
-                return false;
-            }
-            try {
-                getLogger().log(Level.FINE, "Compiling {0} for request to {1}",
-                        new Object[] { realFilename, filename });
-                scss.compile();
-            } catch (Exception e) {
-                e.printStackTrace();
+        CompiledScss compiled = compiledScssCache.get(filename);
+        if (compiled == null || !compiled.isUpToDate()) {
+            compiled = compileScss(scssFilename, filename, sc);
+            if (compiled == null) {
                 return false;
             }
+            // Concurrent requests may compile the stylesheet at the same
+            // time. The result put last is kept, and if it is older than the
+            // sources it is recompiled by the next request.
+            compiledScssCache.put(filename, compiled);
+        }
 
-            // This is for development mode only so instruct the browser to
-            // never
-            // cache it
-            response.setHeader("Cache-Control", "no-cache");
-            final String mimetype = getService().getMimeType(filename);
-            writeResponse(response, mimetype, scss.toString());
+        // This is for development mode only so instruct the browser to
+        // always check whether its cached version is still up to date
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("ETag", compiled.etag);
+        if (compiled.lastModified > 0) {
+            response.setDateHeader("Last-Modified", compiled.lastModified);
+        }
 
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null ? ifNoneMatch.contains(compiled.etag)
+                : browserHasNewestVersion(request, compiled.lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
             return true;
         }
+
+        final String mimetype = getService().getMimeType(filename);
+        writeResponse(response, mimetype, compiled.css);
+
+        return true;
+    }
+
+    /**
+     * Compiles the given SCSS file.
+     * 
+     * @param scssFilename
+     *            the SCSS file to compile
+     * @param filename
+     *            the CSS file that was requested
+     * @param sc
+     *            the servlet context
+     * @return the compiled theme or null if compiling failed
+     * @throws IOException
+     */
+    private CompiledScss compileScss(String scssFilename, String filename,
+            ServletContext sc) throws IOException {
+        String realFilename = sc.getRealPath(scssFilename);
+        ScssStylesheet scss = ScssStylesheet.get(realFilename);
+        if (scss == null) {
+            // Not a file in the file system (WebContent directory). Use the
+            // identifier directly (VAADIN/themes/.../styles.css) so
+            // ScssStylesheet will try using the class loader.
+            if (scssFilename.startsWith("/")) {
+                scssFilename = scssFilename.substring(1);
+            }
+
+            scss = ScssStylesheet.get(scssFilename);
+        }
+
+        if (scss == null) {
+            getLogger()
+                    .log(Level.WARNING,
+                            "Scss file {0} exists but ScssStylesheet was not able to find it",
+                            scssFilename);
+            return null;
+        }
+        try {
+            getLogger().log(Level.FINE, "Compiling {0} for request to {1}",
+                    new Object[] { realFilename, filename });
+            scss.compile();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        return new CompiledScss(scss.toString(), scss.getSourceUris());
     }
 
     /**
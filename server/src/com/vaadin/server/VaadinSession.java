@@ -31,6 +31,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
@@ -182,6 +183,8 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     private long cumulativeRequestDuration = 0;
 
+    private final Map<Integer, MessageStatistics> uiMessageStatistics = new HashMap<Integer, MessageStatistics>();
+
     private long lastRequestDuration = -1;
 
     private long lastRequestTimestamp = System.currentTimeMillis();
@@ -205,6 +208,16 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue;
 
+    private static final AtomicIntegerFieldUpdater<VaadinSession> pendingAccessPurgeScheduledUpdater = AtomicIntegerFieldUpdater
+            .newUpdater(VaadinSession.class, "pendingAccessPurgeScheduled");
+
+    /*
+     * 1 if some thread has taken the responsibility of getting the pending
+     * access queue purged, 0 otherwise. Transient so that a deserialized
+     * session, which has an empty queue, always starts from 0.
+     */
+    private transient volatile int pendingAccessPurgeScheduled = 0;
+
     /**
      * Create a new service session tied to a Vaadin service
      * 
@@ -283,6 +296,26 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return cumulativeRequestDuration;
     }
 
+    /**
+     * Gets the statistics about the UIDL and push messages that have been sent
+     * to the client for the given UI.
+     * 
+     * @since 7.1
+     * @param ui
+     *            the UI to get message statistics for
+     * @return the message statistics of the UI, not <code>null</code>
+     */
+    public MessageStatistics getMessageStatistics(UI ui) {
+        assert hasLock();
+        Integer id = Integer.valueOf(ui.getUIId());
+        MessageStatistics statistics = uiMessageStatistics.get(id);
+        if (statistics == null) {
+            statistics = new MessageStatistics();
+            uiMessageStatistics.put(id, statistics);
+        }
+        return statistics;
+    }
+
     /**
      * Sets the time spent servicing the last request in the session and updates
      * the total time spent servicing requests in this session.
@@ -775,6 +808,19 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         eventRouter.fireEvent(response);
     }
 
+    /**
+     * Checks whether any bootstrap listeners have been added to this session.
+     * 
+     * @see #addBootstrapListener(BootstrapListener)
+     * 
+     * @return <code>true</code> if there are bootstrap listeners,
+     *         <code>false</code> otherwise
+     */
+    boolean hasBootstrapListeners() {
+        return eventRouter.hasListeners(BootstrapFragmentResponse.class)
+                || eventRouter.hasListeners(BootstrapPageResponse.class);
+    }
+
     /**
      * Called by the framework to remove an UI instance from the session because
      * it has been closed.
@@ -787,6 +833,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         int id = ui.getUIId();
         ui.setSession(null);
         uIs.remove(id);
+        uiMessageStatistics.remove(id);
         retainOnRefreshUIs.values().remove(id);
     }
 
@@ -894,12 +941,14 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     public void unlock() {
         assert hasLock();
+        boolean ultimateRelease = false;
         try {
             /*
              * Run pending tasks and push if the reentrant lock will actually be
              * released by this unlock() invocation.
              */
             if (((ReentrantLock) getLockInstance()).getHoldCount() == 1) {
+                ultimateRelease = true;
                 getService().runPendingAccessTasks(this);
 
                 for (UI ui : getUIs()) {
@@ -911,6 +960,20 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         } finally {
             getLockInstance().unlock();
         }
+
+        /*
+         * Tasks enqueued after the queue was purged but before the lock was
+         * released would otherwise be left waiting for the next time the
+         * session is locked, as the threads that enqueued them could not
+         * acquire the lock. The flag is cleared first so that it is never
+         * left set without a lock holder that will purge the queue.
+         */
+        if (ultimateRelease) {
+            clearPendingAccessPurge();
+            if (!getPendingAccessQueue().isEmpty()) {
+                getService().ensureAccessQueuePurged(this);
+            }
+        }
     }
 
     /**
@@ -1258,6 +1321,29 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return pendingAccessQueue;
     }
 
+    /**
+     * Marks that a purge of the pending access queue has been scheduled.
+     * Only the first thread to enqueue a task after the previous purge
+     * started needs to try to acquire the lock, all other threads can rely on
+     * their tasks being run by the same purge.
+     * 
+     * @return <code>true</code> if the purge was not already scheduled and the
+     *         caller should make sure the queue gets purged,
+     *         <code>false</code> if the purge was already scheduled
+     */
+    boolean schedulePendingAccessPurge() {
+        return pendingAccessPurgeScheduledUpdater.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Clears the flag set by {@link #schedulePendingAccessPurge()}. Should be
+     * called after the pending access queue has been purged, before checking
+     * whether it is empty.
+     */
+    void clearPendingAccessPurge() {
+        pendingAccessPurgeScheduled = 0;
+    }
+
     /**
      * Gets the CSRF token (aka double submit cookie) that is used to protect
      * against Cross Site Request Forgery attacks.
@@ -16,12 +16,14 @@
 
 package com.vaadin.server.communication;
 
+import java.io.CharArrayWriter;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -32,6 +34,7 @@ import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.AtmosphereResource.TRANSPORT;
 import org.json.JSONException;
 
+import com.vaadin.server.MessageStatistics;
 import com.vaadin.shared.communication.PushConstants;
 import com.vaadin.ui.UI;
 
@@ -92,8 +95,86 @@ public class AtmospherePushConnection implements PushConnection {
         }
     }
 
+    /**
+     * Writer that counts the number of bytes the characters written through
+     * it take when encoded as UTF-8.
+     */
+    private static class Utf8CountingWriter extends FilterWriter {
+        private long byteCount = 0;
+
+        /*
+         * A high surrogate at the end of a write is counted with the next
+         * write, which may start with the matching low surrogate
+         */
+        private boolean pendingHighSurrogate = false;
+
+        public Utf8CountingWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count(String.valueOf((char) c));
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+            count(CharBuffer.wrap(cbuf, off, len));
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            count(CharBuffer.wrap(str, off, off + len));
+        }
+
+        private void count(CharSequence chars) {
+            int start = 0;
+            int end = chars.length();
+            if (end == 0) {
+                return;
+            }
+            if (pendingHighSurrogate) {
+                pendingHighSurrogate = false;
+                if (Character.isLowSurrogate(chars.charAt(0))) {
+                    byteCount += 4;
+                    start = 1;
+                } else {
+                    byteCount++;
+                }
+            }
+            if (end > start
+                    && Character.isHighSurrogate(chars.charAt(end - 1))) {
+                pendingHighSurrogate = true;
+                end--;
+            }
+            byteCount += MessageStatistics.getUtf8Length(chars.subSequence(
+                    start, end));
+        }
+
+        /**
+         * @return the length of the written characters encoded as UTF-8, in
+         *         bytes
+         */
+        public long getByteCount() {
+            return byteCount + (pendingHighSurrogate ? 1 : 0);
+        }
+    }
+
+    /**
+     * The largest message, in characters, whose buffer is kept for reuse
+     * between push messages. The buffer of a larger message is discarded after
+     * use, as every connection keeps its own buffer and there may be
+     * thousands of connections. The retained buffer may have room for up to
+     * twice this many characters.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 8 * 1024;
+
     private UI ui;
     private AtmosphereResource resource;
+    private transient CharArrayWriter messageBuffer;
     private Future<String> outgoingMessage;
     private FragmentedMessage incomingMessage;
 
@@ -122,13 +203,35 @@ public class AtmospherePushConnection implements PushConnection {
      * @throws IOException
      */
     protected void push(boolean async) throws IOException {
-        Writer writer = new StringWriter();
+        // The whole message is written into one buffer that is reused between
+        // pushes. Broadcasting is asynchronous, so the message is still handed
+        // over as an immutable String that can be written after the buffer
+        // has been reused.
+        CharArrayWriter writer = messageBuffer;
+        if (writer == null) {
+            writer = new CharArrayWriter();
+        } else {
+            writer.reset();
+        }
+        // Push messages are not compressed by the framework, so the sent size
+        // is the size of the encoded message, counted while writing it
+        Utf8CountingWriter countingWriter = new Utf8CountingWriter(writer);
+        countingWriter.write("for(;;);[{");
         try {
-            new UidlWriter().write(getUI(), writer, false, async);
+            new UidlWriter().write(getUI(), countingWriter, false, async);
         } catch (JSONException e) {
             throw new IOException("Error writing UIDL", e);
         }
-        sendMessage("for(;;);[{" + writer.toString() + "}]");
+        countingWriter.write("}]");
+        String message = writer.toString();
+        messageBuffer = writer.size() <= MAX_RETAINED_BUFFER_SIZE ? writer
+                : null;
+
+        sendMessage(message);
+
+        long messageBytes = countingWriter.getByteCount();
+        getUI().getSession().getMessageStatistics(getUI())
+                .addMessage(messageBytes, messageBytes);
     }
 
     /**
@@ -19,7 +19,9 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -29,6 +31,7 @@ import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.PaintException;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
 /**
@@ -41,7 +44,10 @@ public class ConnectorHierarchyWriter implements Serializable {
 
     /**
      * Writes a JSON object containing the connector hierarchy (parent-child
-     * mappings) of the dirty connectors in the given UI.
+     * mappings) of the dirty connectors in the given UI. The children of a
+     * connector are only included if they have changed since they were last
+     * sent to the client. Note that an empty list of children is also
+     * information (e.g. a change from one child to no children).
      * 
      * @param ui
      *            The {@link UI} whose hierarchy to write.
@@ -52,29 +58,39 @@ public class ConnectorHierarchyWriter implements Serializable {
      */
     public void write(UI ui, Writer writer) throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
         JSONObject hierarchyInfo = new JSONObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorId = connector.getConnectorId();
-            JSONArray children = new JSONArray();
+            List<String> children = new ArrayList<String>();
 
             for (ClientConnector child : AbstractClientConnector
                     .getAllChildrenIterable(connector)) {
                 if (LegacyCommunicationManager
                         .isConnectorVisibleToClient(child)) {
-                    children.put(child.getConnectorId());
+                    children.add(child.getConnectorId());
                 }
             }
+
+            if (connectorTracker.isClientSideInitialized(connector)
+                    && children.equals(connectorTracker
+                            .getSentHierarchy(connector))) {
+                // The client already has the same children for the connector
+                continue;
+            }
+
             try {
-                hierarchyInfo.put(connectorId, children);
+                hierarchyInfo.put(connectorId, new JSONArray(children));
             } catch (JSONException e) {
                 throw new PaintException(
                         "Failed to send hierarchy information about "
                                 + connectorId + " to the client: "
                                 + e.getMessage(), e);
             }
+            connectorTracker.setSentHierarchy(connector, children);
         }
         writer.write(hierarchyInfo.toString());
     }
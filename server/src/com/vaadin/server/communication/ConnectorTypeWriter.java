@@ -27,6 +27,7 @@ import org.json.JSONObject;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
 /**
@@ -39,7 +40,9 @@ public class ConnectorTypeWriter implements Serializable {
 
     /**
      * Writes a JSON object containing connector-ID-to-type-ID mappings for each
-     * dirty Connector in the given UI.
+     * dirty Connector in the given UI that has not yet been initialized on the
+     * client side. The client only uses the type when creating a connector, so
+     * it is not sent again for connectors that the client already knows.
      * 
      * @param ui
      *            The {@link UI} containing dirty connectors
@@ -53,11 +56,15 @@ public class ConnectorTypeWriter implements Serializable {
     public void write(UI ui, Writer writer, PaintTarget target)
             throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
         JSONObject connectorTypes = new JSONObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
+            if (connectorTracker.isClientSideInitialized(connector)) {
+                continue;
+            }
             String connectorType = target.getTag(connector);
             try {
                 connectorTypes.put(connector.getConnectorId(), connectorType);
@@ -16,13 +16,18 @@
 
 package com.vaadin.server.communication;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.NoInputStreamException;
@@ -57,143 +62,176 @@ public class FileUploadHandler implements RequestHandler {
     public static class SimpleMultiPartInputStream extends InputStream {
 
         /**
-         * Counter of how many characters have been matched to boundary string
-         * from the stream
+         * The boundary string prefixed by CRLF and two dashes
          */
-        int matchedCount = -1;
+        private final byte[] boundary;
+
+        private final InputStream realInputStream;
 
         /**
-         * Used as pointer when returning bytes after partly matched boundary
-         * string.
+         * Bytes read from the real input stream but not yet returned. Data is
+         * read in large chunks and the boundary is searched for within the
+         * chunk instead of reading and matching one byte at a time.
          */
-        int curBoundaryIndex = 0;
+        private final byte[] buffer;
+
         /**
-         * The byte found after a "promising start for boundary"
+         * Index of the next byte to return from {@link #buffer}
          */
-        private int bufferedByte = -1;
-        private boolean atTheEnd = false;
+        private int bufferPosition = 0;
 
-        private final char[] boundary;
+        /**
+         * Index after the last valid byte in {@link #buffer}
+         */
+        private int bufferLimit = 0;
 
-        private final InputStream realInputStream;
+        /**
+         * Cached index of the boundary in {@link #buffer}, or -1 if the
+         * boundary has not been found in the bytes searched so far
+         */
+        private int boundaryIndex = -1;
+
+        /**
+         * Index in {@link #buffer} from which the search for the boundary
+         * continues. No boundary starts before this index.
+         */
+        private int searchPosition = 0;
+
+        private boolean realStreamEnded = false;
+
+        private boolean atTheEnd = false;
 
         public SimpleMultiPartInputStream(InputStream realInputStream,
                 String boundaryString) {
-            boundary = (CRLF + DASHDASH + boundaryString).toCharArray();
+            try {
+                boundary = (CRLF + DASHDASH + boundaryString)
+                        .getBytes(ISO_8859_1);
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException(e);
+            }
             this.realInputStream = realInputStream;
+            buffer = new byte[Math.max(MAX_UPLOAD_BUFFER_SIZE,
+                    2 * boundary.length)];
         }
 
         @Override
         public int read() throws IOException {
-            if (atTheEnd) {
-                // End boundary reached, nothing more to read
+            if (!ensureData()) {
+                return -1;
+            }
+            int boundaryIndex = findBoundary();
+            if (boundaryIndex == bufferPosition) {
+                atTheEnd = true;
+                return -1;
+            }
+            return buffer[bufferPosition++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureData()) {
+                return -1;
+            }
+            int boundaryIndex = findBoundary();
+            if (boundaryIndex == bufferPosition) {
+                atTheEnd = true;
                 return -1;
-            } else if (bufferedByte >= 0) {
-                /* Purge partially matched boundary if there was such */
-                return getBuffered();
-            } else if (matchedCount != -1) {
+            }
+            int available;
+            if (boundaryIndex != -1) {
+                available = boundaryIndex - bufferPosition;
+            } else {
                 /*
-                 * Special case where last "failed" matching ended with first
-                 * character from boundary string
+                 * The end of the buffer may contain the start of a boundary
+                 * that continues in data not yet read
                  */
-                return matchForBoundary();
-            } else {
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream == -1) {
-                    // unexpected end of stream
-                    throw new IOException(
-                            "The multipart stream ended unexpectedly");
-                }
-                if (boundary[0] == fromActualStream) {
-                    /*
-                     * If matches the first character in boundary string, start
-                     * checking if the boundary is fetched.
-                     */
-                    return matchForBoundary();
-                }
-                return fromActualStream;
+                available = bufferLimit - boundary.length + 1 - bufferPosition;
             }
+            int count = Math.min(len, available);
+            System.arraycopy(buffer, bufferPosition, b, off, count);
+            bufferPosition += count;
+            return count;
         }
 
         /**
-         * Reads the input to expect a boundary string. Expects that the first
-         * character has already been matched.
+         * Makes sure the buffer contains at least as many bytes as there are
+         * in the boundary, reading more from the real stream if needed.
          * 
-         * @return -1 if the boundary was matched, else returns the first byte
-         *         from boundary
+         * @return <code>false</code> if the end boundary has already been
+         *         reached, otherwise <code>true</code>
          * @throws IOException
+         *             if the real stream ends before the boundary is found
          */
-        private int matchForBoundary() throws IOException {
-            matchedCount = 0;
-            /*
-             * Going to "buffered mode". Read until full boundary match or a
-             * different character.
-             */
-            while (true) {
-                matchedCount++;
-                if (matchedCount == boundary.length) {
-                    /*
-                     * The whole boundary matched so we have reached the end of
-                     * file
-                     */
-                    atTheEnd = true;
-                    return -1;
-                }
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream != boundary[matchedCount]) {
-                    /*
-                     * Did not find full boundary, cache the mismatching byte
-                     * and start returning the partially matched boundary.
-                     */
-                    bufferedByte = fromActualStream;
-                    return getBuffered();
+        private boolean ensureData() throws IOException {
+            if (atTheEnd) {
+                // End boundary reached, nothing more to read
+                return false;
+            }
+            if (bufferLimit - bufferPosition >= boundary.length) {
+                return true;
+            }
+
+            // Move the remaining bytes to the start of the buffer
+            int remaining = bufferLimit - bufferPosition;
+            System.arraycopy(buffer, bufferPosition, buffer, 0, remaining);
+            searchPosition = Math.max(0, searchPosition - bufferPosition);
+            if (boundaryIndex != -1) {
+                boundaryIndex -= bufferPosition;
+            }
+            bufferPosition = 0;
+            bufferLimit = remaining;
+
+            while (bufferLimit < boundary.length && !realStreamEnded) {
+                int bytes = realInputStream.read(buffer, bufferLimit,
+                        buffer.length - bufferLimit);
+                if (bytes == -1) {
+                    realStreamEnded = true;
+                } else {
+                    bufferLimit += bytes;
                 }
             }
+            if (bufferLimit < boundary.length) {
+                // unexpected end of stream
+                throw new IOException(
+                        "The multipart stream ended unexpectedly");
+            }
+            return true;
         }
 
         /**
-         * Returns the partly matched boundary string and the byte following
-         * that.
+         * Finds the first position in the buffer where the whole boundary
+         * starts. The result is remembered so that the bytes of the buffer
+         * are only searched once, even when they are returned a few at a
+         * time.
          * 
-         * @return
-         * @throws IOException
+         * @return the index of the boundary in the buffer, or -1 if the buffer
+         *         contains no complete boundary
          */
-        private int getBuffered() throws IOException {
-            int b;
-            if (matchedCount == 0) {
-                // The boundary has been returned, return the buffered byte.
-                b = bufferedByte;
-                bufferedByte = -1;
-                matchedCount = -1;
-            } else {
-                b = boundary[curBoundaryIndex++];
-                if (curBoundaryIndex == matchedCount) {
-                    // The full boundary has been returned, remaining is the
-                    // char that did not match the boundary.
-
-                    curBoundaryIndex = 0;
-                    if (bufferedByte != boundary[0]) {
-                        /*
-                         * next call for getBuffered will return the
-                         * bufferedByte that came after the partial boundary
-                         * match
-                         */
-                        matchedCount = 0;
-                    } else {
-                        /*
-                         * Special case where buffered byte again matches the
-                         * boundaryString. This could be the start of the real
-                         * end boundary.
-                         */
-                        matchedCount = 0;
-                        bufferedByte = -1;
-                    }
-                }
+        private int findBoundary() {
+            if (boundaryIndex != -1) {
+                return boundaryIndex;
             }
-            if (b == -1) {
-                throw new IOException("The multipart stream ended unexpectedly");
+            byte first = boundary[0];
+            int start = Math.max(bufferPosition, searchPosition);
+            int last = bufferLimit - boundary.length;
+            for (int i = start; i <= last; i++) {
+                if (buffer[i] != first) {
+                    continue;
+                }
+                int j = 1;
+                while (j < boundary.length && buffer[i + j] == boundary[j]) {
+                    j++;
+                }
+                if (j == boundary.length) {
+                    boundaryIndex = i;
+                    return i;
+                }
             }
-            return b;
+            searchPosition = Math.max(searchPosition, last + 1);
+            return -1;
         }
     }
 
@@ -209,10 +247,15 @@ public class FileUploadHandler implements RequestHandler {
 
     private static final String UTF8 = "UTF-8";
 
+    private static final String ISO_8859_1 = "ISO-8859-1";
+
     private static final String DASHDASH = "--";
 
-    /* Same as in apache commons file upload library that was previously used. */
-    private static final int MAX_UPLOAD_BUFFER_SIZE = 4 * 1024;
+    /*
+     * Large enough for the multipart parser and the copy loop to work on big
+     * chunks, which also keeps the number of progress events down.
+     */
+    private static final int MAX_UPLOAD_BUFFER_SIZE = 64 * 1024;
 
     @Override
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
@@ -277,14 +320,21 @@ public class FileUploadHandler implements RequestHandler {
     }
 
     private static String readLine(InputStream stream) throws IOException {
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        byte[] bytes = new byte[128];
+        int length = 0;
         int readByte = stream.read();
         while (readByte != LF) {
-            bout.write(readByte);
+            if (readByte == -1) {
+                throw new IOException(
+                        "The multipart stream ended unexpectedly");
+            }
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * length);
+            }
+            bytes[length++] = (byte) readByte;
             readByte = stream.read();
         }
-        byte[] bytes = bout.toByteArray();
-        return new String(bytes, 0, bytes.length - 1, UTF8);
+        return new String(bytes, 0, length - 1, UTF8);
     }
 
     /**
@@ -321,7 +371,12 @@ public class FileUploadHandler implements RequestHandler {
         // multipart parsing, supports only one file for request, but that is
         // fine for our current terminal
 
-        final InputStream inputStream = request.getInputStream();
+        /*
+         * Buffered so that the multipart headers can be read one byte at a
+         * time without hitting the request stream for every byte.
+         */
+        final InputStream inputStream = new BufferedInputStream(
+                request.getInputStream(), MAX_UPLOAD_BUFFER_SIZE);
 
         int contentLength = request.getContentLength();
 
@@ -357,14 +412,8 @@ public class FileUploadHandler implements RequestHandler {
                 * DASHDASH.length() + CRLF.length());
 
         /*
-         * Reads bytes from the underlying stream. Compares the read bytes to
-         * the boundary string and returns -1 if met.
-         * 
-         * The matching happens so that if the read byte equals to the first
-         * char of boundary string, the stream goes to "buffering mode". In
-         * buffering mode bytes are read until the character does not match the
-         * corresponding from boundary string or the full boundary string is
-         * found.
+         * Reads bytes from the underlying stream in large chunks. Searches the
+         * chunks for the boundary string and returns -1 when it is met.
          * 
          * Note, if this is someday needed elsewhere, don't shoot yourself to
          * foot and split to a top level helper class.
@@ -523,10 +572,30 @@ public class FileUploadHandler implements RequestHandler {
                 throw new NoInputStreamException();
             }
 
+            /*
+             * Write directly to the channel of a file. The data is still
+             * copied to a native buffer, but the channel reuses a cached
+             * buffer instead of FileOutputStream allocating and freeing one
+             * for each large write. Subclasses may override write, so they
+             * are written to as streams.
+             */
+            FileChannel channel = null;
+            if (out.getClass() == FileOutputStream.class) {
+                channel = ((FileOutputStream) out).getChannel();
+            }
+
             final byte buffer[] = new byte[MAX_UPLOAD_BUFFER_SIZE];
             int bytesReadToBuffer = 0;
             while ((bytesReadToBuffer = in.read(buffer)) > 0) {
-                out.write(buffer, 0, bytesReadToBuffer);
+                if (channel != null) {
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0,
+                            bytesReadToBuffer);
+                    while (byteBuffer.hasRemaining()) {
+                        channel.write(byteBuffer);
+                    }
+                } else {
+                    out.write(buffer, 0, bytesReadToBuffer);
+                }
                 totalBytes += bytesReadToBuffer;
                 if (listenProgress) {
                     // update progress if listener set and contentLength
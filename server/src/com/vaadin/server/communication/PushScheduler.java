@@ -0,0 +1,148 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs deferred pushes for UIs that have a
+ * {@link com.vaadin.ui.PushIntervalConfiguration#setMinPushInterval(int)
+ * minimum push interval}. A push that is requested too soon after the previous
+ * one is scheduled to run when the interval has elapsed, and any further
+ * pushes requested in the meantime are coalesced into that single deferred
+ * push.
+ * <p>
+ * Each {@link com.vaadin.server.VaadinService} has its own scheduler, which
+ * runs the deferred pushes of its UIs in a single daemon thread that is started
+ * when the first push is deferred. The scheduled tasks only acquire the session
+ * lock and render the pending changes. The thread is stopped by
+ * {@link #shutdown()} when the servlet or portlet is destroyed, so that it does
+ * not keep the web application class loader alive after an undeploy.
+ * 
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+@SuppressWarnings("serial")
+public class PushScheduler implements Serializable {
+
+    private transient ScheduledExecutorService executor;
+
+    /**
+     * The tasks that have been scheduled but not yet started.
+     */
+    private transient Set<Runnable> pendingTasks;
+
+    private boolean shutdown = false;
+
+    /**
+     * Schedules a task to be run after the given delay.
+     * 
+     * @param task
+     *            the task to run, not <code>null</code>
+     * @param delayMillis
+     *            the delay in milliseconds
+     * @throws RejectedExecutionException
+     *             if the task cannot be scheduled, e.g. because the scheduler
+     *             has been shut down
+     */
+    public synchronized void schedule(final Runnable task, long delayMillis) {
+        if (shutdown) {
+            throw new RejectedExecutionException(
+                    "The push scheduler has been shut down");
+        }
+        if (executor == null) {
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(
+                    1, new DaemonThreadFactory());
+            pool.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            executor = pool;
+        }
+        if (pendingTasks == null) {
+            pendingTasks = new LinkedHashSet<Runnable>();
+        }
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (start(task)) {
+                    task.run();
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+        pendingTasks.add(task);
+    }
+
+    private synchronized boolean start(Runnable task) {
+        // Tasks dropped by shutdown() have already been run
+        return pendingTasks != null && pendingTasks.remove(task);
+    }
+
+    /**
+     * Stops the scheduler thread. The deferred pushes that have not yet been
+     * run are run right away in the calling thread instead, so that no UI is
+     * left waiting for a push that will never happen. Tasks scheduled after
+     * this are rejected, so that a UI pushes immediately instead.
+     */
+    public void shutdown() {
+        List<Runnable> droppedTasks;
+        synchronized (this) {
+            shutdown = true;
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            if (pendingTasks == null) {
+                return;
+            }
+            droppedTasks = new ArrayList<Runnable>(pendingTasks);
+            pendingTasks = null;
+        }
+        for (Runnable task : droppedTasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                getLogger().log(Level.WARNING,
+                        "Could not run a deferred push during shutdown", e);
+            }
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(PushScheduler.class.getName());
+    }
+
+    @SuppressWarnings("serial")
+    private static class DaemonThreadFactory implements ThreadFactory,
+            Serializable {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Vaadin push scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -53,14 +53,24 @@ public class SharedStateWriter implements Serializable {
         Collection<ClientConnector> dirtyVisibleConnectors = ui
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
-        JSONObject sharedStates = new JSONObject();
+        // Each connector's state is written out as soon as it has been encoded
+        // instead of first collecting all states into one JSONObject and
+        // converting that to a separate String
+        writer.write("{");
+        boolean first = true;
         for (ClientConnector connector : dirtyVisibleConnectors) {
             // encode and send shared state
             try {
                 JSONObject stateJson = connector.encodeState();
 
                 if (stateJson != null && stateJson.length() != 0) {
-                    sharedStates.put(connector.getConnectorId(), stateJson);
+                    if (!first) {
+                        writer.write(",");
+                    }
+                    first = false;
+                    writer.write(JSONObject.quote(connector.getConnectorId()));
+                    writer.write(":");
+                    stateJson.write(writer);
                 }
             } catch (JSONException e) {
                 throw new PaintException(
@@ -70,6 +80,6 @@ public class SharedStateWriter implements Serializable {
                                 + e.getMessage(), e);
             }
         }
-        writer.write(sharedStates.toString());
+        writer.write("}");
     }
 }
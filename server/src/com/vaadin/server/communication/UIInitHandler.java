@@ -16,19 +16,28 @@
 
 package com.vaadin.server.communication;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.vaadin.annotations.PreserveOnRefresh;
+import com.vaadin.server.Constants;
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.LegacyApplicationUIProvider;
+import com.vaadin.server.MessageStatistics;
 import com.vaadin.server.SynchronizedRequestHandler;
 import com.vaadin.server.UIClassSelectionEvent;
 import com.vaadin.server.UICreateEvent;
@@ -42,6 +51,7 @@ import com.vaadin.shared.communication.PushMode;
 import com.vaadin.shared.ui.ui.Transport;
 import com.vaadin.shared.ui.ui.UIConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.util.ContentEncodingHelper;
 
 /**
  * Handles an initial request from the client to initialize a {@link UI}.
@@ -51,6 +61,36 @@ import com.vaadin.ui.UI;
  */
 public abstract class UIInitHandler extends SynchronizedRequestHandler {
 
+    /**
+     * Stream that counts the bytes written through it.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        /**
+         * @return the number of bytes written
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+
     public static final String BROWSER_DETAILS_PARAMETER = "v-browserDetails";
 
     protected abstract boolean isInitRequest(VaadinRequest request);
@@ -63,6 +103,7 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         }
 
         StringWriter stringWriter = new StringWriter();
+        UI uI;
 
         try {
             assert UI.getCurrent() == null;
@@ -70,7 +111,7 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
             // Set browser information from the request
             session.getBrowser().updateRequestDetails(request);
 
-            UI uI = getBrowserDetailsUI(request, session);
+            uI = getBrowserDetailsUI(request, session);
 
             session.getCommunicationManager().repaintAll(uI);
 
@@ -86,13 +127,19 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
             stringWriter.close();
         }
 
-        return commitJsonResponse(request, response, stringWriter.toString());
+        return commitJsonResponse(request, response, stringWriter.toString(),
+                session, uI);
     }
 
     /**
      * Commit the JSON response. We can't write immediately to the output stream
      * as we want to write only a critical notification if something goes wrong
      * during the response handling.
+     * <p>
+     * The response is compressed if it is at least as large as the
+     * {@link Constants#SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD} parameter
+     * and the browser accepts compressed responses. The raw and sent size of the
+     * response is recorded in the {@link MessageStatistics} of the UI.
      * 
      * @param request
      *            The request that resulted in this response
@@ -100,12 +147,17 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
      *            The response to write to
      * @param json
      *            The JSON to write
+     * @param session
+     *            The session the UI belongs to
+     * @param ui
+     *            The UI the response is written for
      * @return true if the JSON was written successfully, false otherwise
      * @throws IOException
      *             If there was an exception while writing to the output
      */
     static boolean commitJsonResponse(VaadinRequest request,
-            VaadinResponse response, String json) throws IOException {
+            VaadinResponse response, String json, VaadinSession session,
+            UI ui) throws IOException {
         // The response was produced without errors so write it to the client
         response.setContentType("application/json; charset=UTF-8");
 
@@ -113,22 +165,103 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         // iOS 6 Safari requires this (#9732)
         response.setHeader("Cache-Control", "no-cache");
 
+        /*
+         * The length in characters is compared with the threshold so that the
+         * JSON does not need to be encoded twice. A message with non-ASCII
+         * characters may therefore be sent uncompressed even though it is
+         * slightly larger than the threshold when encoded.
+         */
+        String contentEncoding = null;
+        int compressionThreshold = getCompressionThreshold(request
+                .getService().getDeploymentConfiguration());
+        if (compressionThreshold >= 0
+                && json.length() >= compressionThreshold) {
+            contentEncoding = getContentEncoding(request);
+        }
+
         // NOTE! GateIn requires, for some weird reason, getOutputStream
         // to be used instead of getWriter() (it seems to interpret
         // application/json as a binary content type)
-        OutputStreamWriter outputWriter = new OutputStreamWriter(
-                response.getOutputStream(), "UTF-8");
+        OutputStream out = response.getOutputStream();
         try {
-            outputWriter.write(json);
+            // The JSON is encoded and compressed while writing it
+            CountingOutputStream sent = new CountingOutputStream(out);
+            DeflaterOutputStream compressor = null;
+            CountingOutputStream raw;
+            if (contentEncoding != null) {
+                response.setHeader("Content-Encoding", contentEncoding);
+                if ("gzip".equals(contentEncoding)) {
+                    compressor = new GZIPOutputStream(sent);
+                } else {
+                    compressor = new DeflaterOutputStream(sent);
+                }
+                raw = new CountingOutputStream(compressor);
+            } else {
+                raw = sent;
+            }
+
+            Writer writer = new OutputStreamWriter(raw, "UTF-8");
+            writer.write(json);
+            writer.flush();
+            if (compressor != null) {
+                compressor.finish();
+            }
             // NOTE GateIn requires the buffers to be flushed to work
-            outputWriter.flush();
+            out.flush();
+
+            session.getMessageStatistics(ui).addMessage(raw.getCount(),
+                    sent.getCount());
         } finally {
-            outputWriter.close();
+            out.close();
         }
 
         return true;
     }
 
+    /**
+     * Reads the minimum size of UIDL responses that should be compressed. A
+     * value that is not a number is reported when the deployment configuration
+     * is created, so it is silently treated as the default here.
+     * 
+     * @param configuration
+     *            The deployment configuration to read the threshold from
+     * @return The threshold, or a negative number if UIDL responses should not
+     *         be compressed
+     */
+    private static int getCompressionThreshold(
+            DeploymentConfiguration configuration) {
+        int defaultThreshold = DefaultDeploymentConfiguration.DEFAULT_UIDL_COMPRESSION_THRESHOLD;
+        String threshold = configuration.getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD,
+                Integer.toString(defaultThreshold));
+        try {
+            return Integer.parseInt(threshold);
+        } catch (NumberFormatException e) {
+            return defaultThreshold;
+        }
+    }
+
+    /**
+     * Finds the compression to use for the response based on the encodings
+     * accepted by the browser.
+     * 
+     * @param request
+     *            The request to check
+     * @return "gzip" or "deflate", or <code>null</code> if the browser does not
+     *         accept either of them
+     */
+    private static String getContentEncoding(VaadinRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (ContentEncodingHelper.isEncodingAccepted(acceptEncoding, "gzip")) {
+            return "gzip";
+        } else if (ContentEncodingHelper.isEncodingAccepted(acceptEncoding,
+                "deflate")) {
+            return "deflate";
+        } else {
+            return null;
+        }
+    }
+
     private UI getBrowserDetailsUI(VaadinRequest request, VaadinSession session) {
         VaadinService vaadinService = request.getService();
 
@@ -116,7 +116,7 @@ public class UidlRequestHandler extends SynchronizedRequestHandler implements
         }
 
         return UIInitHandler.commitJsonResponse(request, response,
-                stringWriter.toString());
+                stringWriter.toString(), session, uI);
     }
 
     /**
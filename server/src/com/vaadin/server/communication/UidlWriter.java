@@ -123,21 +123,15 @@ public class UidlWriter implements Serializable {
             new SharedStateWriter().write(ui, writer);
             writer.write(", "); // close states
 
-            // TODO This should be optimized. The type only needs to be
-            // sent once for each connector id + on refresh. Use the same cache
-            // as
-            // widget mapping
+            // The type is only sent once for each connector id + on refresh
 
             writer.write("\"types\":");
             new ConnectorTypeWriter().write(ui, writer, paintTarget);
             writer.write(", "); // close states
 
-            // Send update hierarchy information to the client.
-
-            // This could be optimized aswell to send only info if hierarchy has
-            // actually changed. Much like with the shared state. Note though
-            // that an empty hierarchy is information aswell (e.g. change from 1
-            // child to 0 children)
+            // Send update hierarchy information to the client. Only sent for
+            // connectors whose children have actually changed, much like with
+            // the shared state.
 
             writer.write("\"hierarchy\":");
             new ConnectorHierarchyWriter().write(ui, writer);
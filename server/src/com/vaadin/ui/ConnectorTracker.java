@@ -19,9 +19,11 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -75,6 +77,13 @@ public class ConnectorTracker implements Serializable {
     private UI uI;
     private transient Map<ClientConnector, JSONObject> diffStates = new HashMap<ClientConnector, JSONObject>();
 
+    /**
+     * The ids of the children of each connector as they were last sent to the
+     * client. Used for only sending hierarchy information for connectors whose
+     * children have actually changed.
+     */
+    private Map<ClientConnector, List<String>> sentHierarchies = new HashMap<ClientConnector, List<String>>();
+
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
 
@@ -235,6 +244,7 @@ public class ConnectorTracker implements Serializable {
     public void markAllClientSidesUninitialized() {
         uninitializedConnectors.addAll(connectorIdToConnector.values());
         diffStates.clear();
+        sentHierarchies.clear();
     }
 
     /**
@@ -268,6 +278,7 @@ public class ConnectorTracker implements Serializable {
             removeFromGlobalResourceHandler(connector);
             uninitializedConnectors.remove(connector);
             diffStates.remove(connector);
+            sentHierarchies.remove(connector);
         }
         unregisteredConnectors.clear();
 
@@ -295,12 +306,14 @@ public class ConnectorTracker implements Serializable {
                 removeFromGlobalResourceHandler(connector);
                 uninitializedConnectors.remove(connector);
                 diffStates.remove(connector);
+                sentHierarchies.remove(connector);
                 iterator.remove();
             } else if (!LegacyCommunicationManager
                     .isConnectorVisibleToClient(connector)
                     && !uninitializedConnectors.contains(connector)) {
                 uninitializedConnectors.add(connector);
                 diffStates.remove(connector);
+                sentHierarchies.remove(connector);
                 if (getLogger().isLoggable(Level.FINE)) {
                     getLogger()
                             .log(Level.FINE,
@@ -499,6 +512,43 @@ public class ConnectorTracker implements Serializable {
         diffStates.put(connector, diffState);
     }
 
+    /**
+     * Gets the ids of the children of the given connector as they were last
+     * sent to the client. This method is meant for internal use by the
+     * framework.
+     * 
+     * @since 7.1
+     * @param connector
+     *            the connector to get the sent children for
+     * @return a list of child connector ids, or <code>null</code> if the
+     *         hierarchy of the connector has not been sent to the client since
+     *         it was last initialized
+     */
+    public List<String> getSentHierarchy(ClientConnector connector) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        return sentHierarchies.get(connector);
+    }
+
+    /**
+     * Sets the ids of the children of the given connector that have been sent
+     * to the client. This method is meant for internal use by the framework.
+     * 
+     * @since 7.1
+     * @param connector
+     *            the connector for which the hierarchy has been sent
+     * @param childIds
+     *            the ids of the child connectors that have been sent
+     */
+    public void setSentHierarchy(ClientConnector connector,
+            List<String> childIds) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        if (childIds.isEmpty()) {
+            // Avoid keeping an empty list for every connector without children
+            childIds = Collections.emptyList();
+        }
+        sentHierarchies.put(connector, childIds);
+    }
+
     public boolean isDirty(ClientConnector connector) {
         return dirtyConnectors.contains(connector);
     }
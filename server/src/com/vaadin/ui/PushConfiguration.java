@@ -140,9 +140,11 @@ public interface PushConfiguration extends Serializable {
 
 }
 
-class PushConfigurationImpl implements PushConfiguration {
+class PushConfigurationImpl implements PushIntervalConfiguration {
     private UI ui;
 
+    private int minPushInterval = 0;
+
     public PushConfigurationImpl(UI ui) {
         this.ui = ui;
     }
@@ -279,4 +281,28 @@ class PushConfigurationImpl implements PushConfiguration {
                         .keySet());
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.ui.PushIntervalConfiguration#getMinPushInterval()
+     */
+    @Override
+    public int getMinPushInterval() {
+        return minPushInterval;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.ui.PushIntervalConfiguration#setMinPushInterval(int)
+     */
+    @Override
+    public void setMinPushInterval(int minPushInterval) {
+        if (minPushInterval < 0) {
+            throw new IllegalArgumentException(
+                    "Minimum push interval cannot be negative");
+        }
+        this.minPushInterval = minPushInterval;
+    }
+
 }
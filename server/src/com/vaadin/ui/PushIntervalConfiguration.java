@@ -0,0 +1,58 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.ui;
+
+/**
+ * A push configuration that can limit how often a UI is pushed to the client.
+ * The push configuration returned by {@link UI#getPushConfiguration()}
+ * implements this interface unless the UI overrides it with a custom
+ * {@link PushConfiguration} implementation. In that case, pushes are always
+ * sent immediately.
+ * 
+ * @since 7.1
+ * @author Vaadin Ltd
+ */
+public interface PushIntervalConfiguration extends PushConfiguration {
+
+    /**
+     * Returns the minimum time between two consecutive pushes to the client.
+     * 
+     * @since 7.1
+     * @return The minimum push interval in milliseconds, 0 if there is no
+     *         limit
+     */
+    public int getMinPushInterval();
+
+    /**
+     * Sets the minimum time between two consecutive pushes to the client. If
+     * the UI is pushed again before the interval has elapsed, the push is
+     * postponed until the end of the interval and all changes made in the
+     * meantime are sent to the client in one message. This limits the number
+     * of messages rendered and sent for a UI that is updated frequently from
+     * a background thread.
+     * <p>
+     * The default value is 0, meaning that all pushes are sent immediately.
+     * 
+     * @since 7.1
+     * @param minPushInterval
+     *            The minimum push interval in milliseconds, 0 to disable
+     * @throws IllegalArgumentException
+     *             if the interval is negative
+     */
+    public void setMinPushInterval(int minPushInterval);
+
+}
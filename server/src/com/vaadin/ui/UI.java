@@ -24,6 +24,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.event.Action;
@@ -45,6 +46,7 @@ import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinServlet;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.server.communication.PushConnection;
+import com.vaadin.server.communication.PushScheduler;
 import com.vaadin.shared.Connector;
 import com.vaadin.shared.EventId;
 import com.vaadin.shared.MouseEventDetails;
@@ -540,6 +542,14 @@ public abstract class UI extends AbstractSingleComponentContainer implements
 
     private boolean hasPendingPush = false;
 
+    private long lastPushTime = 0;
+
+    /**
+     * The time when the scheduled deferred push is due, 0 if no push is
+     * scheduled.
+     */
+    private transient volatile long scheduledPushTime = 0;
+
     private LocaleService localeService = new LocaleService(this,
             getState(false).localeServiceState);
 
@@ -1341,7 +1351,8 @@ public abstract class UI extends AbstractSingleComponentContainer implements
 
             if (pushConnection == null) {
                 hasPendingPush = true;
-            } else {
+            } else if (!isPushDeferred()) {
+                lastPushTime = System.currentTimeMillis();
                 pushConnection.push();
             }
         } else {
@@ -1349,6 +1360,91 @@ public abstract class UI extends AbstractSingleComponentContainer implements
         }
     }
 
+    /**
+     * Checks whether a push should be postponed because of the
+     * {@link PushIntervalConfiguration#getMinPushInterval() minimum push
+     * interval}. Schedules a deferred push if the push is postponed and no
+     * push has already been scheduled, so that all changes made before the end
+     * of the interval are sent in the same message.
+     * 
+     * @return <code>true</code> if the push should be postponed,
+     *         <code>false</code> if it should be sent right away
+     */
+    private boolean isPushDeferred() {
+        PushConfiguration pushConfiguration = getPushConfiguration();
+        if (!(pushConfiguration instanceof PushIntervalConfiguration)) {
+            return false;
+        }
+        int minPushInterval = ((PushIntervalConfiguration) pushConfiguration)
+                .getMinPushInterval();
+        if (minPushInterval <= 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long scheduledTime = scheduledPushTime;
+        if (scheduledTime != 0) {
+            if (now < scheduledTime + minPushInterval) {
+                // Changes will be sent by the already scheduled push
+                return true;
+            }
+            /*
+             * The scheduled push should have run long ago, so it has most
+             * likely been lost. Push right away instead of waiting for it.
+             */
+            getLogger().warning(
+                    "Deferred push was not run in time, pushing immediately");
+            scheduledPushTime = 0;
+        }
+        long delay = lastPushTime + minPushInterval - now;
+        if (delay <= 0) {
+            return false;
+        }
+
+        PushScheduler scheduler = getSession().getService()
+                .getPushScheduler();
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    runDeferredPush();
+                }
+            }, delay);
+        } catch (RuntimeException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not schedule a deferred push, pushing immediately",
+                    e);
+            return false;
+        }
+        scheduledPushTime = now + delay;
+        return true;
+    }
+
+    /**
+     * Pushes the changes postponed by {@link #isPushDeferred()}. Run by the
+     * {@link PushScheduler} without holding the session lock.
+     */
+    private void runDeferredPush() {
+        try {
+            access(new Runnable() {
+                @Override
+                public void run() {
+                    scheduledPushTime = 0;
+                    if (pushConnection != null
+                            && getPushConfiguration().getPushMode()
+                                    .isEnabled()) {
+                        push();
+                    }
+                }
+            });
+        } catch (UIDetachedException e) {
+            // Nothing to push to a detached UI
+            scheduledPushTime = 0;
+        } catch (RuntimeException e) {
+            scheduledPushTime = 0;
+            throw e;
+        }
+    }
+
     /**
      * Returns the internal push connection object used by this UI. This method
      * should only be called by the framework. If the returned PushConnection is
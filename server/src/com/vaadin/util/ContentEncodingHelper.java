@@ -0,0 +1,74 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.util;
+
+import java.io.Serializable;
+
+/**
+ * Provides helper methods for HTTP content encodings. Meant for internal use.
+ * 
+ * @since 7.1
+ * @author Vaadin Ltd
+ */
+@SuppressWarnings("serial")
+public class ContentEncodingHelper implements Serializable {
+
+    /**
+     * Checks whether a content encoding is acceptable according to the value
+     * of an Accept-Encoding header. An encoding with a quality value of 0 is
+     * not acceptable. An encoding that is not listed is acceptable if the
+     * header accepts any encoding using <code>*</code>.
+     * 
+     * @since 7.1
+     * @param acceptEncoding
+     *            the value of the Accept-Encoding header, or null if the
+     *            header is missing
+     * @param encoding
+     *            the content encoding to check, e.g. "gzip"
+     * @return true if the encoding is acceptable, otherwise false
+     */
+    public static boolean isEncodingAccepted(String acceptEncoding,
+            String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean anyAccepted = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            float quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim().toLowerCase();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(parameter.substring(2)
+                                .trim());
+                    } catch (NumberFormatException e) {
+                        // Invalid quality value, don't use the encoding
+                        quality = 0;
+                    }
+                }
+            }
+            String name = parameters[0].trim();
+            if (name.equalsIgnoreCase(encoding)) {
+                return quality > 0;
+            } else if (name.equals("*")) {
+                anyAccepted = quality > 0;
+            }
+        }
+        return anyAccepted;
+    }
+}
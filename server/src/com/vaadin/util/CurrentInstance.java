@@ -217,6 +217,40 @@ public class CurrentInstance implements Serializable {
         }
     }
 
+    /**
+     * Checks whether two maps of current instances, e.g. returned by
+     * {@link #getInstances(boolean)}, contain the same instances with the same
+     * inheritability. The maps themselves can not be compared using
+     * {@link Map#equals(Object)}, as a new entry is created every time an
+     * instance is set or restored. Note that this should only be used
+     * internally.
+     * 
+     * @since 7.1
+     * 
+     * @param instances1
+     *            A Class -> CurrentInstance map
+     * @param instances2
+     *            Another Class -> CurrentInstance map
+     * @return <code>true</code> if both maps contain the same instances,
+     *         otherwise <code>false</code>
+     */
+    public static boolean containSameInstances(
+            Map<Class<?>, CurrentInstance> instances1,
+            Map<Class<?>, CurrentInstance> instances2) {
+        if (instances1.size() != instances2.size()) {
+            return false;
+        }
+        for (Entry<Class<?>, CurrentInstance> entry : instances1.entrySet()) {
+            CurrentInstance ci1 = entry.getValue();
+            CurrentInstance ci2 = instances2.get(entry.getKey());
+            if (ci2 == null || ci1.instance != ci2.instance
+                    || ci1.inheritable != ci2.inheritable) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Sets current instances for the UI and all related classes. The previously
      * defined values can be restored by passing the returned map to
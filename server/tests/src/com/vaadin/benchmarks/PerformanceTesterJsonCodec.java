@@ -0,0 +1,98 @@
+package com.vaadin.benchmarks;
+
+import java.util.Arrays;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.vaadin.server.JsonCodec;
+import com.vaadin.shared.AbstractComponentState;
+import com.vaadin.shared.ui.table.TableState;
+
+/*
+ * This simple test shows the time spent in JsonCodec when encoding shared
+ * state beans against a diff reference and when decoding beans received from
+ * the client. The two state types represent a small state and a state with all
+ * the field related properties.
+ * 
+ * Please run with -server and -Xloggc:/tmp/gclog.vgc -verbose:gc -XX:+PrintCompilation
+ * 
+ * Your results will vary.
+ */
+public class PerformanceTesterJsonCodec {
+
+    public static void main(String[] args) throws Exception {
+        warmup();
+
+        long start = System.currentTimeMillis();
+        runEncodeBenchmark(AbstractComponentState.class, 1000000);
+        long end = System.currentTimeMillis();
+        System.out.println("AbstractComponentState encode took "
+                + (end - start) + " ms");
+
+        start = System.currentTimeMillis();
+        runEncodeBenchmark(TableState.class, 1000000);
+        end = System.currentTimeMillis();
+        System.out.println("TableState encode took " + (end - start) + " ms");
+
+        start = System.currentTimeMillis();
+        runDecodeBenchmark(AbstractComponentState.class, 1000000);
+        end = System.currentTimeMillis();
+        System.out.println("AbstractComponentState decode took "
+                + (end - start) + " ms");
+
+        start = System.currentTimeMillis();
+        runDecodeBenchmark(TableState.class, 1000000);
+        end = System.currentTimeMillis();
+        System.out.println("TableState decode took " + (end - start) + " ms");
+    }
+
+    private static void warmup() throws Exception {
+        runEncodeBenchmark(AbstractComponentState.class, 10000);
+        runEncodeBenchmark(TableState.class, 10000);
+        runDecodeBenchmark(AbstractComponentState.class, 10000);
+        runDecodeBenchmark(TableState.class, 10000);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static AbstractComponentState createState(
+            Class<? extends AbstractComponentState> type) throws Exception {
+        AbstractComponentState state = type.getConstructor().newInstance();
+        state.caption = "Caption";
+        state.description = "Description";
+        state.width = "100%";
+        state.styles = Arrays.asList("mainStyle", "foo", "bar");
+        return state;
+    }
+
+    private static void runEncodeBenchmark(
+            Class<? extends AbstractComponentState> type, int loops)
+            throws Exception {
+        Object reference = JsonCodec.encode(
+                type.getConstructor().newInstance(), null, type, null)
+                .getEncodedValue();
+        AbstractComponentState state = createState(type);
+        for (int i = 0; i < loops; i++) {
+            JsonCodec.encode(state, reference, type, null);
+        }
+    }
+
+    private static void runDecodeBenchmark(
+            Class<? extends AbstractComponentState> type, int loops)
+            throws Exception {
+        JSONObject encoded = (JSONObject) JsonCodec.encode(createState(type),
+                null, type, null).getEncodedValue();
+        for (int i = 0; i < loops; i++) {
+            decode(type, encoded);
+        }
+    }
+
+    private static Object decode(Class<?> type, JSONObject encoded)
+            throws JSONException {
+        return JsonCodec.decodeCustomType(type, encoded, null);
+    }
+
+}
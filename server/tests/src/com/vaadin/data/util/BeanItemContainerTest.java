@@ -714,4 +714,22 @@ public class BeanItemContainerTest extends AbstractBeanContainerTest {
                         .getValue());
     }
 
+    public void testFilterAddedAgainAfterUnlistenedBeanChange() {
+        BeanItemContainer<ClassName> container = getContainer();
+        ClassName apple = new ClassName("apple", 1);
+        ClassName banana = new ClassName("banana", 2);
+        container.addBean(apple);
+        container.addBean(banana);
+
+        container.addContainerFilter(FULLY_QUALIFIED_NAME, "a", false, true);
+        assertEquals(1, container.size());
+        container.removeAllContainerFilters();
+
+        // Not noticed by the container as there are no filters
+        banana.setFullyQualifiedName("apex");
+
+        container.addContainerFilter(FULLY_QUALIFIED_NAME, "a", false, true);
+        assertEquals(2, container.size());
+    }
+
 }
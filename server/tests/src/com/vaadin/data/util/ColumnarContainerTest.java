@@ -0,0 +1,95 @@
+package com.vaadin.data.util;
+
+import com.vaadin.data.Item;
+
+public class ColumnarContainerTest extends AbstractInMemoryContainerTest {
+
+    public void testBasicOperations() {
+        testBasicContainerOperations(new ColumnarContainer());
+    }
+
+    public void testFiltering() {
+        testContainerFiltering(new ColumnarContainer());
+    }
+
+    public void testSorting() {
+        testContainerSorting(new ColumnarContainer());
+    }
+
+    public void testSortingAndFiltering() {
+        testContainerSortingAndFiltering(new ColumnarContainer());
+    }
+
+    public void testContainerOrdered() {
+        testContainerOrdered(new ColumnarContainer());
+    }
+
+    public void testContainerIndexed() {
+        testContainerIndexed(new ColumnarContainer(), sampleData[2], 2, true,
+                "newItemId", true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testPrimitiveColumns() {
+        ColumnarContainer container = new ColumnarContainer();
+        container.addContainerProperty("int", Integer.class, null);
+        container.addContainerProperty("long", long.class, 0L);
+        container.addContainerProperty("double", Double.class, 1.5);
+        container.addContainerProperty("boolean", Boolean.class, null);
+
+        for (int i = 0; i < 100; i++) {
+            Item item = container.addItem(i);
+            item.getItemProperty("int").setValue(i);
+            item.getItemProperty("boolean").setValue(i % 2 == 0);
+        }
+
+        Item item = container.getItem(42);
+        assertEquals(42, item.getItemProperty("int").getValue());
+        assertEquals(0L, item.getItemProperty("long").getValue());
+        assertEquals(1.5, item.getItemProperty("double").getValue());
+        assertEquals(Boolean.TRUE, item.getItemProperty("boolean").getValue());
+        assertEquals(Boolean.FALSE,
+                container.getContainerProperty(43, "boolean").getValue());
+
+        item.getItemProperty("int").setValue(null);
+        assertNull(item.getItemProperty("int").getValue());
+
+        try {
+            item.getItemProperty("long").setValue("foo");
+            fail("Value of wrong type should not be accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testRemovedRowIsCleared() {
+        ColumnarContainer container = new ColumnarContainer();
+        container.addContainerProperty("int", Integer.class, null);
+        container.addContainerProperty("name", String.class, "default");
+
+        container.addItem("a").getItemProperty("int").setValue(1);
+        container.getContainerProperty("a", "name").setValue("a");
+        container.removeItem("a");
+        assertNull(container.getContainerProperty("a", "int"));
+
+        // Reuses the row of the removed item
+        Item item = container.addItem("b");
+        assertNull(item.getItemProperty("int").getValue());
+        assertEquals("default", item.getItemProperty("name").getValue());
+    }
+
+    public void testAddPropertyToExistingItems() {
+        ColumnarContainer container = new ColumnarContainer();
+        container.addItem("a");
+        container.addItem("b");
+        container.addContainerProperty("double", double.class, 2.0);
+        assertEquals(2.0, container.getContainerProperty("b", "double")
+                .getValue());
+
+        container.removeAllItems();
+        container.addItem("c");
+        assertEquals(2.0, container.getContainerProperty("c", "double")
+                .getValue());
+    }
+}
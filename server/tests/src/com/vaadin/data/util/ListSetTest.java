@@ -0,0 +1,89 @@
+package com.vaadin.data.util;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class ListSetTest extends TestCase {
+
+    private ListSet<Integer> createListSet(int size) {
+        ListSet<Integer> list = new ListSet<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.add(Integer.valueOf(i));
+        }
+        return list;
+    }
+
+    private void assertIndexes(ListSet<Integer> list) {
+        // Repeat to get past the linear searches
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < list.size(); i++) {
+                assertEquals(i, list.indexOf(list.get(i)));
+                assertEquals(i, list.lastIndexOf(list.get(i)));
+            }
+        }
+    }
+
+    public void testIndexOfAfterAppend() {
+        ListSet<Integer> list = createListSet(100);
+        assertIndexes(list);
+        assertEquals(-1, list.indexOf(Integer.valueOf(100)));
+        assertEquals(-1, list.indexOf(null));
+    }
+
+    public void testIndexOfAfterInsertAndRemove() {
+        ListSet<Integer> list = createListSet(100);
+        assertIndexes(list);
+
+        list.add(10, Integer.valueOf(1000));
+        assertEquals(10, list.indexOf(Integer.valueOf(1000)));
+        assertEquals(11, list.indexOf(Integer.valueOf(10)));
+        assertIndexes(list);
+
+        list.remove(Integer.valueOf(5));
+        assertEquals(-1, list.indexOf(Integer.valueOf(5)));
+        assertEquals(5, list.indexOf(Integer.valueOf(6)));
+        assertIndexes(list);
+
+        list.remove(list.size() - 1);
+        assertEquals(-1, list.indexOf(Integer.valueOf(99)));
+        assertIndexes(list);
+
+        list.subList(0, 10).clear();
+        assertEquals(-1, list.indexOf(Integer.valueOf(0)));
+        assertIndexes(list);
+    }
+
+    public void testIndexOfAfterSort() {
+        ListSet<Integer> list = createListSet(100);
+        assertIndexes(list);
+
+        Collections.reverse(list);
+        assertEquals(0, list.indexOf(Integer.valueOf(99)));
+        assertIndexes(list);
+
+        Collections.sort(list);
+        assertEquals(99, list.indexOf(Integer.valueOf(99)));
+        assertIndexes(list);
+    }
+
+    public void testIndexOfAfterSet() {
+        ListSet<Integer> list = createListSet(10);
+        list.set(3, Integer.valueOf(100));
+        assertEquals(-1, list.indexOf(Integer.valueOf(3)));
+        assertEquals(3, list.indexOf(Integer.valueOf(100)));
+        assertIndexes(list);
+    }
+
+    public void testIndexOfInClone() {
+        ListSet<Integer> list = createListSet(10);
+        assertIndexes(list);
+
+        @SuppressWarnings("unchecked")
+        ListSet<Integer> clone = (ListSet<Integer>) list.clone();
+        clone.add(0, Integer.valueOf(100));
+        assertIndexes(clone);
+        assertIndexes(list);
+        assertEquals(-1, list.indexOf(Integer.valueOf(100)));
+    }
+}
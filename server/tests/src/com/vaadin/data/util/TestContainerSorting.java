@@ -1,8 +1,14 @@
 package com.vaadin.data.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 
@@ -83,6 +89,43 @@ public class TestContainerSorting extends TestCase {
 
     }
 
+    @SuppressWarnings("unchecked")
+    public void testParallelSortAndFilter() {
+        IndexedContainer ic = new IndexedContainer();
+        ic.addContainerProperty("value", Integer.class, null);
+        ic.addContainerProperty("name", String.class, null);
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            Item item = ic.addItem(Integer.valueOf(i));
+            item.getItemProperty("value").setValue(
+                    Integer.valueOf(random.nextInt(100)));
+            item.getItemProperty("name").setValue("Item " + random.nextInt(10));
+        }
+
+        List<Object> expected = new ArrayList<Object>(ic.getItemIds());
+        DefaultItemSorter sorter = new DefaultItemSorter();
+        sorter.setSortProperties(ic, new Object[] { "value", "name" },
+                new boolean[] { true, false });
+        Collections.sort(expected, sorter);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ic.setParallelExecutor(executor, 100);
+            ic.sort(new Object[] { "value", "name" }, new boolean[] { true,
+                    false });
+            assertEquals(expected, ic.getItemIds());
+
+            ic.addContainerFilter("name", "Item 1", false, true);
+            for (Object itemId : ic.getItemIds()) {
+                assertEquals("Item 1", ic.getItem(itemId)
+                        .getItemProperty("name").getValue());
+            }
+            assertTrue(ic.size() > 0 && ic.size() < 1000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     public void testHierarchicalContainer() {
         HierarchicalContainer hc = new HierarchicalContainer();
         populateContainer(hc);
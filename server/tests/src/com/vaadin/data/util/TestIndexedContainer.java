@@ -4,7 +4,9 @@ import java.util.List;
 
 import junit.framework.Assert;
 
+import com.vaadin.data.Container.Filter;
 import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.SimpleStringFilter;
 
 public class TestIndexedContainer extends AbstractInMemoryContainerTest {
 
@@ -392,4 +394,132 @@ public class TestIndexedContainer extends AbstractInMemoryContainerTest {
         assertNull(ic.getContainerProperty(object1, null));
     }
 
+    private IndexedContainer createNameContainer(String... names) {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("name", String.class, null);
+        for (String name : names) {
+            addName(container, name);
+        }
+        return container;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addName(IndexedContainer container, String name) {
+        container.addItem(name).getItemProperty("name").setValue(name);
+    }
+
+    public void testNarrowingStringFilter() {
+        IndexedContainer container = createNameContainer("apple", "apricot",
+                "banana", "avocado", "Apple pie");
+
+        container.addContainerFilter("name", "a", true, true);
+        assertEquals(4, container.size());
+
+        // Replaced with a narrower filter like in type-ahead filtering
+        container.removeAllContainerFilters();
+        assertEquals(5, container.size());
+        container.addContainerFilter("name", "ap", true, true);
+        assertEquals(3, container.size());
+        assertEquals("apple", container.firstItemId());
+        assertEquals("Apple pie", container.lastItemId());
+
+        // Widening must check all items again
+        container.removeAllContainerFilters();
+        container.addContainerFilter("name", "b", true, true);
+        assertEquals(1, container.size());
+        assertEquals("banana", container.firstItemId());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testNarrowingFilterAfterItemChanges() {
+        IndexedContainer container = createNameContainer("apple", "banana");
+
+        container.addContainerFilter("name", "a", false, true);
+        assertEquals(1, container.size());
+        container.removeAllContainerFilters();
+
+        addName(container, "apricot");
+        container.getContainerProperty("banana", "name").setValue("apex");
+
+        container.addContainerFilter("name", "ap", false, true);
+        assertEquals(3, container.size());
+    }
+
+    public void testAddingFilterNarrowsVisibleItems() {
+        IndexedContainer container = createNameContainer("apple", "apricot",
+                "banana", "avocado");
+
+        container.addContainerFilter("name", "a", false, true);
+        assertEquals(3, container.size());
+        container.addContainerFilter("name", "o", false, false);
+        assertEquals(2, container.size());
+        assertEquals("apricot", container.firstItemId());
+        assertEquals("avocado", container.lastItemId());
+
+        container.removeContainerFilters("name");
+        assertEquals(4, container.size());
+    }
+
+    public void testAddingFilterOnlyChecksPreviouslyVisibleItems() {
+        IndexedContainer container = createNameContainer("apple", "apricot",
+                "banana", "avocado");
+        final int[] checkedItems = new int[1];
+        Filter countingFilter = new Filter() {
+            @Override
+            public boolean passesFilter(Object itemId, Item item) {
+                checkedItems[0]++;
+                return true;
+            }
+
+            @Override
+            public boolean appliesToProperty(Object propertyId) {
+                return false;
+            }
+        };
+
+        container.addContainerFilter("name", "a", false, true);
+        assertEquals(3, container.size());
+        container.addContainerFilter(countingFilter);
+        assertEquals(3, container.size());
+        assertEquals(3, checkedItems[0]);
+    }
+
+    public void testTypeAheadFilteringOnlyChecksPreviousMatches() {
+        final int[] checkedItems = new int[1];
+        IndexedContainer container = new IndexedContainer() {
+            @Override
+            protected boolean passesFilters(Object itemId) {
+                checkedItems[0]++;
+                return super.passesFilters(itemId);
+            }
+        };
+        container.addContainerProperty("name", String.class, null);
+        for (String name : new String[] { "apple", "apricot", "banana",
+                "avocado", "Apple pie" }) {
+            addName(container, name);
+        }
+
+        // Like ComboBox.getOptionsWithFilter() for each typed character
+        checkedItems[0] = 0;
+        Filter filter = new SimpleStringFilter("name", "a", true, true);
+        container.addContainerFilter(filter);
+        assertEquals(4, container.size());
+        container.removeContainerFilter(filter);
+        assertEquals(5, checkedItems[0]);
+
+        checkedItems[0] = 0;
+        filter = new SimpleStringFilter("name", "ap", true, true);
+        container.addContainerFilter(filter);
+        assertEquals(3, container.size());
+        container.removeContainerFilter(filter);
+        assertEquals(4, checkedItems[0]);
+
+        // Like a TextField replacing the filter for each typed character
+        checkedItems[0] = 0;
+        container.removeAllContainerFilters();
+        container.addContainerFilter("name", "app", true, true);
+        assertEquals(2, container.size());
+        assertEquals(3, checkedItems[0]);
+    }
+
 }
@@ -2,11 +2,17 @@ package com.vaadin.data.util.sqlcontainer;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.easymock.EasyMock;
 import org.junit.After;
@@ -220,6 +226,265 @@ public class SQLContainerTableQueryTest {
         }
     }
 
+    @Test
+    public void getItemIds_table5000RowsSmallPageLength_returnsAllIdsInOrder()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        container.setPageLength(100);
+        List<?> itemIds = (List<?>) container.getItemIds();
+        Assert.assertEquals(5000, itemIds.size());
+        for (int i = 0; i < 5000; i += 997) {
+            Assert.assertEquals(container.getIdByIndex(i), itemIds.get(i));
+        }
+        int count = 0;
+        for (Object id : itemIds) {
+            Assert.assertEquals(itemIds.get(count), id);
+            count++;
+        }
+        Assert.assertEquals(5000, count);
+        Assert.assertTrue(itemIds.contains(container.getIdByIndex(4999)));
+    }
+
+    @Test
+    public void getIdByIndex_keysetPagination_sameAsOffsetPaging()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        TableQuery keysetQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        keysetQuery.setKeysetPaginationEnabled(true);
+        SQLContainer keysetContainer = new SQLContainer(keysetQuery);
+        container.setPageLength(50);
+        keysetContainer.setPageLength(50);
+        container.sort(new Object[] { "NAME" }, new boolean[] { false });
+        keysetContainer.sort(new Object[] { "NAME" }, new boolean[] { false });
+
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertEquals(container.getIdByIndex(i),
+                    keysetContainer.getIdByIndex(i));
+        }
+    }
+
+    @Test
+    public void getIdByIndex_keysetPaginationOrderedByPrimaryKey_sameAsOffsetPaging()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        TableQuery keysetQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        keysetQuery.setKeysetPaginationEnabled(true);
+        SQLContainer keysetContainer = new SQLContainer(keysetQuery);
+        container.setPageLength(50);
+        keysetContainer.setPageLength(50);
+        container.sort(new Object[] { "ID" }, new boolean[] { false });
+        keysetContainer.sort(new Object[] { "ID" }, new boolean[] { false });
+
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertEquals(container.getIdByIndex(i),
+                    keysetContainer.getIdByIndex(i));
+        }
+    }
+
+    @Test
+    public void getIdByIndex_keysetPaginationOrderedByColumnWithNulls_returnsAllRows()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate("update people set name = null where age < 10");
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+
+        // Databases differ in which direction nulls are ordered last
+        for (boolean ascending : new boolean[] { true, false }) {
+            SQLContainer container = new SQLContainer(new TableQuery("people",
+                    connectionPool, SQLTestsConstants.sqlGen));
+            TableQuery keysetQuery = new TableQuery("people", connectionPool,
+                    SQLTestsConstants.sqlGen);
+            keysetQuery.setKeysetPaginationEnabled(true);
+            SQLContainer keysetContainer = new SQLContainer(keysetQuery);
+            container.setPageLength(50);
+            keysetContainer.setPageLength(50);
+            container.sort(new Object[] { "NAME", "ID" }, new boolean[] {
+                    ascending, true });
+            keysetContainer.sort(new Object[] { "NAME" },
+                    new boolean[] { ascending });
+
+            for (int i = 0; i < 5000; i++) {
+                Assert.assertEquals(container.getIdByIndex(i),
+                        keysetContainer.getIdByIndex(i));
+            }
+        }
+    }
+
+    @Test
+    public void getIdByIndex_prefetchExecutor_sameAsWithoutPrefetch()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        SQLContainer prefetchingContainer = new SQLContainer(new TableQuery(
+                "people", connectionPool, SQLTestsConstants.sqlGen));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        try {
+            prefetchingContainer.setPrefetchExecutor(executor);
+            container.setPageLength(50);
+            prefetchingContainer.setPageLength(50);
+
+            for (int i = 0; i < 5000; i++) {
+                Assert.assertEquals(container.getIdByIndex(i),
+                        prefetchingContainer.getIdByIndex(i));
+            }
+            for (int i = 4999; i >= 0; i--) {
+                Assert.assertEquals(container.getIdByIndex(i),
+                        prefetchingContainer.getIdByIndex(i));
+            }
+            Assert.assertTrue(executor.getTaskCount() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void getIdByIndex_prefetchNotStarted_fetchesPageWithoutWaiting()
+            throws Exception {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        SQLContainer prefetchingContainer = new SQLContainer(new TableQuery(
+                "people", connectionPool, SQLTestsConstants.sqlGen));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        final CountDownLatch blocker = new CountDownLatch(1);
+        try {
+            // Keep the only thread busy so that prefetches never start
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocker.await();
+                    } catch (InterruptedException e) {
+                        // Stop blocking
+                    }
+                }
+            });
+            prefetchingContainer.setPrefetchExecutor(executor);
+            container.setPageLength(50);
+            prefetchingContainer.setPageLength(50);
+
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(container.getIdByIndex(i),
+                        prefetchingContainer.getIdByIndex(i));
+            }
+            Assert.assertEquals(0, executor.getCompletedTaskCount());
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getItem_sharedPageCache_rowsFetchedOnce() throws SQLException {
+        SharedPageCache cache = new SharedPageCache(1000);
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        SQLContainer otherContainer = new SQLContainer(new TableQuery(
+                "people", connectionPool, SQLTestsConstants.sqlGen));
+        container.setSharedPageCache(cache);
+        otherContainer.setSharedPageCache(cache);
+
+        Object id = container.firstItemId();
+        Assert.assertEquals(id, otherContainer.firstItemId());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(4, cache.getRowCount());
+
+        Item item = container.getItem(id);
+        Item otherItem = otherContainer.getItem(id);
+        Assert.assertNotSame(item, otherItem);
+        Assert.assertEquals(item.getItemProperty("NAME").getValue(),
+                otherItem.getItemProperty("NAME").getValue());
+        otherItem.getItemProperty("NAME").setValue("Viljami");
+        Assert.assertEquals("Ville", item.getItemProperty("NAME").getValue());
+    }
+
+    @Test
+    public void getItem_sharedPageCacheWithOtherConnectionPool_rowsNotShared()
+            throws SQLException {
+        SharedPageCache cache = new SharedPageCache(1000);
+        JDBCConnectionPool otherPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 1, 1);
+        try {
+            SQLContainer container = new SQLContainer(new TableQuery(
+                    "people", connectionPool, SQLTestsConstants.sqlGen));
+            SQLContainer otherContainer = new SQLContainer(new TableQuery(
+                    "people", otherPool, SQLTestsConstants.sqlGen));
+            container.setSharedPageCache(cache);
+            otherContainer.setSharedPageCache(cache);
+
+            container.firstItemId();
+            otherContainer.firstItemId();
+            Assert.assertEquals(2, cache.getMissCount());
+            Assert.assertEquals(0, cache.getHitCount());
+            Assert.assertEquals(8, cache.getRowCount());
+        } finally {
+            otherPool.destroy();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void commit_sharedPageCache_invalidatesCachedRows()
+            throws SQLException {
+        SharedPageCache cache = new SharedPageCache(1000);
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        SQLContainer otherContainer = new SQLContainer(new TableQuery(
+                "people", connectionPool, SQLTestsConstants.sqlGen));
+        container.setSharedPageCache(cache);
+        otherContainer.setSharedPageCache(cache);
+
+        Object id = container.firstItemId();
+        container.getItem(id).getItemProperty("NAME").setValue("Viljami");
+        container.commit();
+        Assert.assertEquals(0, cache.getRowCount());
+
+        Assert.assertEquals("Viljami", otherContainer.getItem(id)
+                .getItemProperty("NAME").getValue());
+        Assert.assertEquals("Viljami", container.getItem(id)
+                .getItemProperty("NAME").getValue());
+    }
+
+    @Test
+    public void getResultsAfter_keysetPagination_returnsFollowingRows()
+            throws SQLException {
+        TableQuery query = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        query.setKeysetPaginationEnabled(true);
+        Assert.assertEquals(Arrays.asList("ID"), query.getKeysetColumns());
+        query.setOrderBy(Arrays.asList(new OrderBy("NAME", true)));
+        Assert.assertEquals(Arrays.asList("NAME", "ID"),
+                query.getKeysetColumns());
+
+        query.beginTransaction();
+        ResultSet rs = query.getResultsAfter(new Object[] { "Pelle",
+                2 + offset }, 0, 0);
+        Assert.assertTrue(rs.next());
+        Assert.assertEquals("Ville", rs.getString("NAME"));
+        Assert.assertFalse(rs.next());
+        rs.getStatement().close();
+        rs.close();
+        query.commit();
+    }
+
     @Test
     public void getType_tableNAMEPropertyId_returnsString() throws SQLException {
         SQLContainer container = new SQLContainer(new TableQuery("people",
@@ -1136,6 +1401,32 @@ public class SQLContainerTableQueryTest {
                         .getValue());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void commit_tableQuerySubclassOverridingStoreRow_usesOverride()
+            throws SQLException {
+        final List<RowItem> storedRows = new ArrayList<RowItem>();
+        TableQuery query = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen) {
+            @Override
+            public int storeRow(RowItem row) throws SQLException {
+                storedRows.add(row);
+                return super.storeRow(row);
+            }
+        };
+        SQLContainer container = new SQLContainer(query);
+        container.getContainerProperty(container.firstItemId(), "NAME")
+                .setValue("Donald");
+        container.getContainerProperty(container.lastItemId(), "NAME")
+                .setValue("Daisy");
+        container.commit();
+
+        Assert.assertEquals(2, storedRows.size());
+        Assert.assertEquals("Donald",
+                container.getContainerProperty(container.firstItemId(), "NAME")
+                        .getValue());
+    }
+
     @Test
     public void rollback_tableItemAdded_discardsAddedItem() throws SQLException {
         SQLContainer container = new SQLContainer(new TableQuery("people",
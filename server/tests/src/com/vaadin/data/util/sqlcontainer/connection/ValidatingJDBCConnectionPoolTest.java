@@ -0,0 +1,195 @@
+package com.vaadin.data.util.sqlcontainer.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.sqlcontainer.SQLTestsConstants;
+
+public class ValidatingJDBCConnectionPoolTest {
+    private ValidatingJDBCConnectionPool connectionPool;
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new ValidatingJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 1, 2);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.destroy();
+    }
+
+    @Test
+    public void reserveConnection_releasedConnection_isReused()
+            throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        Assert.assertEquals(1, connectionPool.getActiveConnectionCount());
+        connectionPool.releaseConnection(conn);
+        Assert.assertEquals(0, connectionPool.getActiveConnectionCount());
+        Assert.assertEquals(1, connectionPool.getIdleConnectionCount());
+
+        Assert.assertSame(conn, connectionPool.reserveConnection());
+        Assert.assertEquals(0, connectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void reserveConnection_connectionReleasedWhileWaiting_returnsConnection()
+            throws Exception {
+        connectionPool.reserveConnection();
+        final Connection conn = connectionPool.reserveConnection();
+
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    // Release right away
+                }
+                connectionPool.releaseConnection(conn);
+            }
+        };
+        releaser.start();
+
+        Assert.assertSame(conn, connectionPool.reserveConnection());
+        releaser.join();
+        Assert.assertEquals(1, connectionPool.getWaitCount());
+        Assert.assertEquals(0, connectionPool.getTimeoutCount());
+        Assert.assertTrue(connectionPool.getMaxWaitTime() > 0);
+        Assert.assertEquals(connectionPool.getMaxWaitTime(),
+                connectionPool.getTotalWaitTime());
+    }
+
+    @Test
+    public void reserveConnection_noConnectionReleased_shouldTimeOut()
+            throws SQLException {
+        connectionPool.setWaitTimeout(50);
+        connectionPool.reserveConnection();
+        connectionPool.reserveConnection();
+        try {
+            connectionPool.reserveConnection();
+            Assert.fail("Reserving a connection didn't time out even though no connections are available!");
+        } catch (SQLException e) {
+            // Expected
+        }
+        Assert.assertEquals(1, connectionPool.getWaitCount());
+        Assert.assertEquals(1, connectionPool.getTimeoutCount());
+        Assert.assertEquals(2, connectionPool.getActiveConnectionCount());
+    }
+
+    @Test
+    public void reserveConnection_idleConnectionClosed_returnsNewConnection()
+            throws SQLException {
+        connectionPool.setValidationInterval(0);
+        Connection conn = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(conn);
+        conn.close();
+
+        Connection newConn = connectionPool.reserveConnection();
+        Assert.assertNotSame(conn, newConn);
+        Assert.assertFalse(newConn.isClosed());
+    }
+
+    @Test
+    public void releaseConnection_unknownConnection_isIgnored()
+            throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(conn);
+        connectionPool.releaseConnection(conn);
+        connectionPool.releaseConnection(null);
+
+        Assert.assertEquals(1, connectionPool.getIdleConnectionCount());
+        connectionPool.reserveConnection();
+        connectionPool.reserveConnection();
+        Assert.assertEquals(2, connectionPool.getActiveConnectionCount());
+    }
+
+    @Test
+    public void destroy_shouldCloseAllConnections() throws SQLException {
+        Connection reserved = connectionPool.reserveConnection();
+        Connection idle = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(idle);
+
+        connectionPool.destroy();
+        Assert.assertTrue(reserved.isClosed());
+        Assert.assertTrue(idle.isClosed());
+    }
+
+    @Test
+    public void reserveConnection_severalIdle_returnsMostRecentlyReleased()
+            throws SQLException {
+        Connection first = connectionPool.reserveConnection();
+        Connection second = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(first);
+        connectionPool.releaseConnection(second);
+
+        Assert.assertSame(second, connectionPool.reserveConnection());
+    }
+
+    @Test
+    public void reserveConnection_idleLongerThanMaxIdleTime_closesExtraIdleConnections()
+            throws Exception {
+        connectionPool.destroy();
+        connectionPool = new ValidatingJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 1, 3);
+        connectionPool.setMaxIdleTime(20);
+        Connection oldest = connectionPool.reserveConnection();
+        Connection older = connectionPool.reserveConnection();
+        Connection newest = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(oldest);
+        connectionPool.releaseConnection(older);
+        connectionPool.releaseConnection(newest);
+        Assert.assertEquals(3, connectionPool.getIdleConnectionCount());
+
+        Thread.sleep(50);
+
+        // The minimum of one idle connection is kept open and reused
+        Assert.assertSame(newest, connectionPool.reserveConnection());
+        Assert.assertTrue(oldest.isClosed());
+        Assert.assertTrue(older.isClosed());
+        Assert.assertEquals(0, connectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void reserveConnection_threadWaiting_waitingThreadGetsReleasedConnection()
+            throws Exception {
+        connectionPool.reserveConnection();
+        final Connection conn = connectionPool.reserveConnection();
+        final AtomicReference<Connection> waiterConnection = new AtomicReference<Connection>();
+
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    waiterConnection.set(connectionPool.reserveConnection());
+                } catch (SQLException e) {
+                    // Leaves the reference null
+                }
+            }
+        };
+        waiter.start();
+        while (connectionPool.getWaitCount() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+
+        connectionPool.releaseConnection(conn);
+        try {
+            connectionPool.setWaitTimeout(0);
+            connectionPool.reserveConnection();
+            Assert.fail("A new arrival took the connection released to a waiting thread");
+        } catch (SQLException e) {
+            // Expected
+        }
+        waiter.join();
+        Assert.assertSame(conn, waiterConnection.get());
+    }
+}
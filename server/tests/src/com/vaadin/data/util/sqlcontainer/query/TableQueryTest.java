@@ -19,12 +19,15 @@ import com.vaadin.data.util.filter.Compare.Equal;
 import com.vaadin.data.util.filter.Like;
 import com.vaadin.data.util.sqlcontainer.DataGenerator;
 import com.vaadin.data.util.sqlcontainer.OptimisticLockException;
+import com.vaadin.data.util.sqlcontainer.RowId;
 import com.vaadin.data.util.sqlcontainer.RowItem;
 import com.vaadin.data.util.sqlcontainer.SQLContainer;
 import com.vaadin.data.util.sqlcontainer.SQLTestsConstants;
 import com.vaadin.data.util.sqlcontainer.SQLTestsConstants.DB;
 import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
 import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate.RowIdChangeEvent;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate.RowIdChangeListener;
 import com.vaadin.data.util.sqlcontainer.query.generator.DefaultSQLGenerator;
 
 public class TableQueryTest {
@@ -498,6 +501,53 @@ public class TableQueryTest {
         connectionPool.releaseConnection(conn);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void storeRows_insertsAndUpdates_shouldSucceed()
+            throws UnsupportedOperationException, SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        SQLContainer container = new SQLContainer(tQuery);
+        final List<RowId> newIds = new ArrayList<RowId>();
+        tQuery.addRowIdChangeListener(new RowIdChangeListener() {
+            @Override
+            public void rowIdChange(RowIdChangeEvent event) {
+                newIds.add(event.getNewRowId());
+            }
+        });
+
+        List<RowItem> rows = new ArrayList<RowItem>();
+        for (Object id : container.getItemIds()) {
+            RowItem row = (RowItem) container.getItem(id);
+            row.getItemProperty("AGE").setValue(99);
+            rows.add(row);
+        }
+        for (int i = 0; i < 3; i++) {
+            RowItem row = (RowItem) container.getItem(container.addItem());
+            row.getItemProperty("NAME").setValue("Clone " + i);
+            row.getItemProperty("AGE").setValue(99);
+            rows.add(row);
+        }
+
+        tQuery.beginTransaction();
+        int[] results = tQuery.storeRows(rows);
+        tQuery.commit();
+
+        Assert.assertEquals(7, results.length);
+        for (int result : results) {
+            Assert.assertTrue(result != 0);
+        }
+        Assert.assertEquals(3, newIds.size());
+
+        container = new SQLContainer(new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen));
+        Assert.assertEquals(7, container.size());
+        for (Object id : container.getItemIds()) {
+            Assert.assertEquals(99, ((Number) container
+                    .getContainerProperty(id, "AGE").getValue()).intValue());
+        }
+    }
+
     @Test
     public void storeRow_versionSetAndEqualToDBValue_shouldSucceed()
             throws SQLException {
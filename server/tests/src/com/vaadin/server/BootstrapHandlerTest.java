@@ -0,0 +1,263 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import junit.framework.Assert;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.communication.ServletBootstrapHandler;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.UI;
+
+public class BootstrapHandlerTest {
+
+    public static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    private static class TestUIProvider extends UIProvider {
+        private String title = "Title";
+        private String theme = "reindeer";
+        private PushMode pushMode = PushMode.DISABLED;
+
+        @Override
+        public Class<? extends UI> getUIClass(UIClassSelectionEvent event) {
+            return TestUI.class;
+        }
+
+        @Override
+        public String getPageTitle(UICreateEvent event) {
+            return title;
+        }
+
+        @Override
+        public String getTheme(UICreateEvent event) {
+            return theme;
+        }
+
+        @Override
+        public PushMode getPushMode(UICreateEvent event) {
+            return pushMode;
+        }
+    }
+
+    /**
+     * Counts how many times the bootstrap HTML is generated.
+     * getMainDivStyle() is called once per request for the template key, and
+     * once more whenever the HTML is generated.
+     */
+    private static class CountingBootstrapHandler extends
+            ServletBootstrapHandler {
+        private int mainDivStyleCalls = 0;
+
+        @Override
+        protected String getMainDivStyle(BootstrapContext context) {
+            mainDivStyleCalls++;
+            return null;
+        }
+    }
+
+    private static class TestVaadinService extends VaadinService {
+        private String mainDivId;
+
+        public TestVaadinService() {
+            super(new MockDeploymentConfiguration());
+        }
+
+        @Override
+        public String getStaticFileLocation(VaadinRequest request) {
+            return "";
+        }
+
+        @Override
+        public String getConfiguredWidgetset(VaadinRequest request) {
+            return "com.example.Widgetset";
+        }
+
+        @Override
+        public String getConfiguredTheme(VaadinRequest request) {
+            return "reindeer";
+        }
+
+        @Override
+        public boolean isStandalone(VaadinRequest request) {
+            return true;
+        }
+
+        @Override
+        public String getMimeType(String resourceName) {
+            return null;
+        }
+
+        @Override
+        public File getBaseDirectory() {
+            return null;
+        }
+
+        @Override
+        protected boolean requestCanCreateSession(VaadinRequest request) {
+            return false;
+        }
+
+        @Override
+        public String getServiceName() {
+            return "test";
+        }
+
+        @Override
+        public InputStream getThemeResourceAsStream(UI uI, String themeName,
+                String resource) {
+            return null;
+        }
+
+        @Override
+        public String getMainDivId(VaadinSession session,
+                VaadinRequest request, Class<? extends UI> uiClass) {
+            return mainDivId;
+        }
+
+        @Override
+        public boolean ensurePushAvailable() {
+            return true;
+        }
+    }
+
+    private TestVaadinService service;
+    private VaadinSession session;
+    private TestUIProvider uiProvider;
+    private CountingBootstrapHandler handler;
+    private int requestCount = 0;
+
+    @Before
+    public void setup() {
+        service = new TestVaadinService();
+        session = new AlwaysLockedVaadinSession(service);
+        session.setConfiguration(service.getDeploymentConfiguration());
+        uiProvider = new TestUIProvider();
+        session.addUIProvider(uiProvider);
+        handler = new CountingBootstrapHandler();
+    }
+
+    private String bootstrap(String appId) throws Exception {
+        service.mainDivId = appId;
+
+        VaadinRequest request = EasyMock.createNiceMock(VaadinRequest.class);
+        EasyMock.expect(request.getService()).andReturn(service).anyTimes();
+        VaadinResponse response = EasyMock
+                .createNiceMock(VaadinResponse.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EasyMock.expect(response.getOutputStream()).andReturn(out)
+                .anyTimes();
+        EasyMock.replay(request, response);
+
+        Assert.assertTrue(handler.synchronizedHandleRequest(session, request,
+                response));
+        requestCount++;
+        return out.toString("UTF-8");
+    }
+
+    private int getGeneratedCount() {
+        return handler.mainDivStyleCalls - requestCount;
+    }
+
+    @Test
+    public void sameKey_templateReusedWithEscapedAppId() throws Exception {
+        bootstrap("first");
+        String html = bootstrap("a\"<b&c");
+        Assert.assertEquals(1, getGeneratedCount());
+        Assert.assertFalse(html.contains("first"));
+
+        // A bootstrap listener forces the whole page to be generated
+        session.addBootstrapListener(new BootstrapListener() {
+            @Override
+            public void modifyBootstrapPage(BootstrapPageResponse response) {
+            }
+
+            @Override
+            public void modifyBootstrapFragment(
+                    BootstrapFragmentResponse response) {
+            }
+        });
+        Assert.assertEquals(bootstrap("a\"<b&c"), html);
+    }
+
+    @Test
+    public void titleChanged_templateRegenerated() throws Exception {
+        bootstrap("app");
+        uiProvider.title = "Other title";
+        String html = bootstrap("app");
+
+        Assert.assertEquals(2, getGeneratedCount());
+        Assert.assertTrue(html.contains("<title>Other title</title>"));
+    }
+
+    @Test
+    public void themeChanged_templateRegenerated() throws Exception {
+        bootstrap("app");
+        uiProvider.theme = "runo";
+        String html = bootstrap("app");
+
+        Assert.assertEquals(2, getGeneratedCount());
+        Assert.assertTrue(html.contains("VAADIN/themes/runo/favicon.ico"));
+    }
+
+    @Test
+    public void pushEnabled_templateRegenerated() throws Exception {
+        bootstrap("app");
+        uiProvider.pushMode = PushMode.AUTOMATIC;
+        String html = bootstrap("app");
+
+        Assert.assertEquals(2, getGeneratedCount());
+        Assert.assertTrue(html.contains("vaadinPush.js"));
+    }
+
+    @Test
+    public void bootstrapListener_templateNotUsed() throws Exception {
+        bootstrap("app");
+        BootstrapListener listener = new BootstrapListener() {
+            @Override
+            public void modifyBootstrapPage(BootstrapPageResponse response) {
+                response.getDocument().head().appendElement("meta")
+                        .attr("name", "listener");
+            }
+
+            @Override
+            public void modifyBootstrapFragment(
+                    BootstrapFragmentResponse response) {
+            }
+        };
+        session.addBootstrapListener(listener);
+
+        // The cached template does not contain the changes of the listener
+        Assert.assertTrue(bootstrap("app").contains("name=\"listener\""));
+        Assert.assertTrue(bootstrap("app").contains("name=\"listener\""));
+
+        // Nor is the template replaced by the page modified by the listener
+        session.removeBootstrapListener(listener);
+        Assert.assertFalse(bootstrap("app").contains("name=\"listener\""));
+    }
+}
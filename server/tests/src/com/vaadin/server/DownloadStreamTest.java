@@ -0,0 +1,146 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import org.easymock.EasyMock;
+
+public class DownloadStreamTest extends TestCase {
+
+    private static final String CONTENT = "abcdefghij";
+
+    private ByteArrayOutputStream out;
+
+    private VaadinRequest createRequest(String range, String ifNoneMatch) {
+        VaadinRequest request = EasyMock.createNiceMock(VaadinRequest.class);
+        EasyMock.expect(request.getHeader("Range")).andReturn(range)
+                .anyTimes();
+        EasyMock.expect(request.getHeader("If-None-Match"))
+                .andReturn(ifNoneMatch).anyTimes();
+        EasyMock.replay(request);
+        return request;
+    }
+
+    private VaadinResponse createResponse(int expectedStatus)
+            throws IOException {
+        out = new ByteArrayOutputStream();
+        VaadinResponse response = EasyMock
+                .createNiceMock(VaadinResponse.class);
+        if (expectedStatus != HttpServletResponse.SC_OK) {
+            response.setStatus(expectedStatus);
+            EasyMock.expectLastCall().once();
+        }
+        EasyMock.expect(response.getOutputStream()).andReturn(out).anyTimes();
+        EasyMock.replay(response);
+        return response;
+    }
+
+    private DownloadStream createStream(InputStream data) {
+        DownloadStream stream = new DownloadStream(data, "text/plain",
+                "test.txt");
+        stream.setParameter("Content-Length",
+                String.valueOf(CONTENT.length()));
+        stream.setParameter("ETag", "\"foo\"");
+        return stream;
+    }
+
+    private InputStream createData() {
+        return new ByteArrayInputStream(CONTENT.getBytes());
+    }
+
+    public void testFullContent() throws IOException {
+        VaadinResponse response = createResponse(HttpServletResponse.SC_OK);
+        createStream(createData()).writeResponse(createRequest(null, null),
+                response);
+        assertEquals(CONTENT, out.toString());
+    }
+
+    public void testRange() throws IOException {
+        VaadinResponse response = createResponse(HttpServletResponse.SC_PARTIAL_CONTENT);
+        createStream(createData()).writeResponse(
+                createRequest("bytes=2-4", null), response);
+        assertEquals("cde", out.toString());
+        EasyMock.verify(response);
+    }
+
+    public void testOpenEndedRange() throws IOException {
+        VaadinResponse response = createResponse(HttpServletResponse.SC_PARTIAL_CONTENT);
+        createStream(createData()).writeResponse(
+                createRequest("bytes=7-", null), response);
+        assertEquals("hij", out.toString());
+        EasyMock.verify(response);
+    }
+
+    public void testSuffixRange() throws IOException {
+        VaadinResponse response = createResponse(HttpServletResponse.SC_PARTIAL_CONTENT);
+        createStream(createData()).writeResponse(
+                createRequest("bytes=-4", null), response);
+        assertEquals("ghij", out.toString());
+        EasyMock.verify(response);
+    }
+
+    public void testUnsatisfiableRange() throws IOException {
+        VaadinResponse response = createResponse(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        createStream(createData()).writeResponse(
+                createRequest("bytes=20-30", null), response);
+        assertEquals("", out.toString());
+        EasyMock.verify(response);
+    }
+
+    public void testMultipleRangesSendsFullContent() throws IOException {
+        VaadinResponse response = createResponse(HttpServletResponse.SC_OK);
+        createStream(createData()).writeResponse(
+                createRequest("bytes=0-1,4-5", null), response);
+        assertEquals(CONTENT, out.toString());
+    }
+
+    public void testMatchingEtag() throws IOException {
+        VaadinResponse response = createResponse(HttpServletResponse.SC_NOT_MODIFIED);
+        createStream(createData()).writeResponse(
+                createRequest(null, "\"bar\", \"foo\""), response);
+        assertEquals("", out.toString());
+        EasyMock.verify(response);
+    }
+
+    public void testFileRange() throws IOException {
+        File file = File.createTempFile("download", ".txt");
+        try {
+            FileOutputStream fileOut = new FileOutputStream(file);
+            fileOut.write(CONTENT.getBytes());
+            fileOut.close();
+
+            VaadinResponse response = createResponse(HttpServletResponse.SC_PARTIAL_CONTENT);
+            new DownloadStream(new FileInputStream(file), "text/plain",
+                    "test.txt").writeResponse(
+                    createRequest("bytes=1-3", null), response);
+            assertEquals("bcd", out.toString());
+            EasyMock.verify(response);
+        } finally {
+            file.delete();
+        }
+    }
+}
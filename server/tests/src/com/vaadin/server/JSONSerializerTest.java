@@ -79,6 +79,40 @@ public class JSONSerializerTest extends TestCase {
         ensureDecodedCorrectly(stateToStringMap, encodedMap, mapType);
     }
 
+    public void testDiffWithEqualNestedValues() throws Exception {
+        AbstractSplitPanelState reference = new AbstractSplitPanelState();
+        reference.caption = "Caption";
+        reference.styles = Arrays.asList("foo", "bar");
+        JSONObject referenceJson = (JSONObject) JsonCodec.encode(reference,
+                null, AbstractSplitPanelState.class, null).getEncodedValue();
+
+        AbstractSplitPanelState state = new AbstractSplitPanelState();
+        state.caption = "Caption";
+        state.styles = Arrays.asList("foo", "bar");
+        JSONObject diff = (JSONObject) JsonCodec.encode(state, referenceJson,
+                AbstractSplitPanelState.class, null).getDiff();
+
+        assertEquals(0, diff.length());
+    }
+
+    public void testDiffWithChangedNestedValues() throws Exception {
+        AbstractSplitPanelState reference = new AbstractSplitPanelState();
+        reference.styles = Arrays.asList("foo", "bar");
+        JSONObject referenceJson = (JSONObject) JsonCodec.encode(reference,
+                null, AbstractSplitPanelState.class, null).getEncodedValue();
+
+        AbstractSplitPanelState state = new AbstractSplitPanelState();
+        state.styles = Arrays.asList("foo", "baz");
+        state.splitterState.position = 42;
+        JSONObject diff = (JSONObject) JsonCodec.encode(state, referenceJson,
+                AbstractSplitPanelState.class, null).getDiff();
+
+        assertEquals(2, diff.length());
+        assertEquals("[\"foo\",\"baz\"]", diff.get("styles").toString());
+        assertEquals("{\"position\":42}", diff.get("splitterState")
+                .toString());
+    }
+
     public void testNullLegacyValue() throws JSONException {
         JSONArray inputArray = new JSONArray(
                 Arrays.asList("n", JSONObject.NULL));
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import junit.framework.TestCase;
+
+import org.json.JSONObject;
+
+import com.vaadin.shared.ui.label.LabelState;
+import com.vaadin.shared.ui.link.LinkState;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.UI;
+
+@SuppressWarnings("deprecation")
+public class LegacyCommunicationManagerTest extends TestCase {
+
+    private ConnectorTracker tracker;
+
+    @Override
+    protected void setUp() throws Exception {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        tracker = ui.getConnectorTracker();
+    }
+
+    public void testReferenceDiffStateReusedForSameClass() {
+        JSONObject first = LegacyCommunicationManager.getReferenceDiffState(
+                LabelState.class, tracker);
+        JSONObject second = LegacyCommunicationManager.getReferenceDiffState(
+                LabelState.class, tracker);
+
+        assertNotNull(first);
+        assertSame(first, second);
+    }
+
+    public void testReferenceDiffStateSeparateForEachClass() {
+        JSONObject label = LegacyCommunicationManager.getReferenceDiffState(
+                LabelState.class, tracker);
+        JSONObject link = LegacyCommunicationManager.getReferenceDiffState(
+                LinkState.class, tracker);
+
+        assertNotSame(label, link);
+        assertSame(link, LegacyCommunicationManager.getReferenceDiffState(
+                LinkState.class, tracker));
+    }
+}
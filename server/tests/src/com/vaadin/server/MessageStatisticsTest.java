@@ -0,0 +1,46 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link MessageStatistics}
+ * 
+ * @author Vaadin Ltd
+ * @since 7.1
+ */
+public class MessageStatisticsTest extends TestCase {
+
+    public void testUtf8Length() throws Exception {
+        String[] strings = { "", "for(;;);[{}]", "äö",
+                "€ uro", "😀 smile", "unpaired \ud83d" };
+        for (String string : strings) {
+            assertEquals(string, string.getBytes("UTF-8").length,
+                    MessageStatistics.getUtf8Length(string));
+        }
+    }
+
+    public void testAddMessage() {
+        MessageStatistics statistics = new MessageStatistics();
+        statistics.addMessage(1000, 100);
+        statistics.addMessage(10, 10);
+
+        assertEquals(2, statistics.getMessageCount());
+        assertEquals(1010, statistics.getRawBytes());
+        assertEquals(110, statistics.getSentBytes());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+import com.vaadin.server.StaticResourceCache.CachedResource;
+
+public class StaticResourceCacheTest extends TestCase {
+
+    private File createFile(int size) throws IOException {
+        File file = File.createTempFile("static", ".js");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) 'a');
+        out.write(data);
+        out.close();
+        return file;
+    }
+
+    private URL createResource(int size) throws IOException {
+        return createFile(size).toURI().toURL();
+    }
+
+    public void testResourceIsCached() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(10000);
+        File file = createFile(1000);
+        URL url = file.toURI().toURL();
+
+        CachedResource resource = cache.get("/VAADIN/a.js", url,
+                "application/javascript");
+        assertEquals(1000, resource.getData().length);
+        assertNotNull(resource.getEtag());
+
+        file.delete();
+        assertSame(resource,
+                cache.get("/VAADIN/a.js", url, "application/javascript"));
+    }
+
+    public void testGzippedVariant() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(10000);
+        CachedResource resource = cache.get("/VAADIN/a.js",
+                createResource(1000), "application/javascript");
+
+        byte[] gzipped = resource.getGzippedData();
+        assertNotNull(gzipped);
+        assertTrue(gzipped.length < 1000);
+
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(
+                gzipped));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        assertTrue(Arrays.equals(resource.getData(), out.toByteArray()));
+
+        // Caches must not mix up the compressed and uncompressed variants
+        assertFalse(resource.getEtag().equals(resource.getGzippedEtag()));
+        assertTrue(resource.getGzippedEtag().startsWith("\""));
+        assertTrue(resource.getGzippedEtag().endsWith("\""));
+    }
+
+    public void testImagesAreNotCompressed() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(10000);
+        CachedResource resource = cache.get("/VAADIN/a.png",
+                createResource(1000), "image/png");
+        assertNull(resource.getGzippedData());
+    }
+
+    public void testTooLargeResourceIsNotCached() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(500);
+        assertNull(cache.get("/VAADIN/a.png", createResource(1000),
+                "image/png"));
+    }
+
+    public void testTooLargeResourceIsNotReadAgain() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(500);
+        File file = createFile(1000);
+        URL url = file.toURI().toURL();
+        assertNull(cache.get("/VAADIN/a.png", url, "image/png"));
+
+        // Reading the deleted file would throw an exception
+        file.delete();
+        assertNull(cache.get("/VAADIN/a.png", url, "image/png"));
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(2500);
+        URL a = createResource(1000);
+        URL b = createResource(1000);
+        URL c = createResource(1000);
+
+        CachedResource resourceA = cache.get("a", a, null);
+        CachedResource resourceB = cache.get("b", b, null);
+        // Use a so that b is the least recently used
+        assertSame(resourceA, cache.get("a", a, null));
+        cache.get("c", c, null);
+
+        assertSame(resourceA, cache.get("a", a, null));
+        assertNotSame(resourceB, cache.get("b", b, null));
+    }
+}
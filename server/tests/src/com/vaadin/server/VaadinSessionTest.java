@@ -15,7 +15,12 @@
  */
 package com.vaadin.server;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.servlet.ServletConfig;
@@ -146,4 +151,95 @@ public class VaadinSessionTest {
         mockService.cleanupSession(session);
         Assert.assertTrue(detachCalled.get());
     }
+
+    @Test
+    public void accessFromOtherThreadWhileRunningTasks_laterTasksStillRun()
+            throws Exception {
+        // The session is locked by the test thread in setup
+        session.access(new Runnable() {
+            @Override
+            public void run() {
+                Thread thread = new Thread() {
+                    @Override
+                    public void run() {
+                        session.access(new Runnable() {
+                            @Override
+                            public void run() {
+                            }
+                        });
+                    }
+                };
+                thread.start();
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        session.unlock();
+        Assert.assertTrue(session.getPendingAccessQueue().isEmpty());
+
+        final AtomicReference<Future<Void>> future = new AtomicReference<Future<Void>>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                future.set(session.access(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                }));
+            }
+        };
+        thread.start();
+        thread.join();
+
+        // Throws TimeoutException if the task is left in the queue
+        future.get().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void accessTasksWithSameInstances_changesDoNotLeakToNextTask() {
+        final AtomicReference<String> seenByNextTask = new AtomicReference<String>(
+                "not run");
+        session.access(new Runnable() {
+            @Override
+            public void run() {
+                CurrentInstance.set(String.class, "leaked");
+            }
+        });
+        session.access(new Runnable() {
+            @Override
+            public void run() {
+                seenByNextTask.set(CurrentInstance.get(String.class));
+            }
+        });
+        session.unlock();
+
+        Assert.assertNull(seenByNextTask.get());
+        Assert.assertNull(CurrentInstance.get(String.class));
+    }
+
+    @Test
+    public void uiAccessTasksWithSameInstances_instancesResetOnce() {
+        CurrentInstance.setInheritable(String.class, "background");
+        final List<CurrentInstance> seenByTasks = new ArrayList<CurrentInstance>();
+        for (int i = 0; i < 3; i++) {
+            ui.access(new Runnable() {
+                @Override
+                public void run() {
+                    seenByTasks.add(CurrentInstance.getInstances(false).get(
+                            String.class));
+                }
+            });
+        }
+        CurrentInstance.set(String.class, null);
+        session.unlock();
+
+        Assert.assertEquals(3, seenByTasks.size());
+        Assert.assertNotNull(seenByTasks.get(0));
+        // Resetting the instances between the tasks would recreate the entry
+        Assert.assertSame(seenByTasks.get(0), seenByTasks.get(1));
+        Assert.assertSame(seenByTasks.get(0), seenByTasks.get(2));
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+public class ConnectorHierarchyWriterTest {
+
+    private UI ui;
+    private CssLayout layout;
+    private ConnectorTracker tracker;
+
+    @Before
+    public void setup() throws Exception {
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        layout = new CssLayout(new Label("a"), new Label("b"));
+        ui.setContent(layout);
+        ui.setSession(new AlwaysLockedVaadinSession(null));
+        tracker = ui.getConnectorTracker();
+
+        writeHierarchy();
+    }
+
+    /**
+     * Writes the hierarchy of the dirty connectors and then updates the
+     * connector tracker like UidlWriter does at the end of a response.
+     */
+    private JSONObject writeHierarchy() throws Exception {
+        List<ClientConnector> dirtyConnectors = tracker
+                .getDirtyVisibleConnectors();
+        StringWriter writer = new StringWriter();
+        new ConnectorHierarchyWriter().write(ui, writer);
+
+        tracker.markAllConnectorsClean();
+        for (ClientConnector connector : dirtyConnectors) {
+            tracker.markClientSideInitialized(connector);
+        }
+        tracker.cleanConnectorMap();
+        return new JSONObject(writer.toString());
+    }
+
+    private void assertLayoutChildren(JSONObject hierarchy) throws Exception {
+        JSONArray children = hierarchy.getJSONArray(layout.getConnectorId());
+        Assert.assertEquals(layout.getComponentCount(), children.length());
+        for (int i = 0; i < children.length(); i++) {
+            Assert.assertEquals(layout.getComponent(i).getConnectorId(),
+                    children.getString(i));
+        }
+    }
+
+    @Test
+    public void unchangedHierarchy_notResent() throws Exception {
+        layout.markAsDirty();
+        layout.getComponent(0).markAsDirty();
+
+        JSONObject hierarchy = writeHierarchy();
+        Assert.assertEquals(0, hierarchy.length());
+    }
+
+    @Test
+    public void childAdded_hierarchyResent() throws Exception {
+        Label label = new Label("c");
+        layout.addComponent(label);
+
+        JSONObject hierarchy = writeHierarchy();
+        assertLayoutChildren(hierarchy);
+        // The new connector is sent with its (empty) list of children
+        Assert.assertEquals(0, hierarchy.getJSONArray(label.getConnectorId())
+                .length());
+    }
+
+    @Test
+    public void childRemoved_hierarchyResent() throws Exception {
+        layout.removeComponent(layout.getComponent(0));
+
+        JSONObject hierarchy = writeHierarchy();
+        assertLayoutChildren(hierarchy);
+    }
+
+    @Test
+    public void allClientSidesUninitialized_everythingResent()
+            throws Exception {
+        tracker.markAllConnectorsDirty();
+        tracker.markAllClientSidesUninitialized();
+
+        JSONObject hierarchy = writeHierarchy();
+        Assert.assertEquals(4, hierarchy.length());
+        assertLayoutChildren(hierarchy);
+        Assert.assertEquals(layout.getConnectorId(),
+                hierarchy.getJSONArray(ui.getConnectorId()).getString(0));
+    }
+
+    @Test
+    public void unregisteredConnector_hierarchyResentWhenReattached()
+            throws Exception {
+        ui.setContent(new Label("replacement"));
+        writeHierarchy();
+
+        ui.setContent(layout);
+        Assert.assertNull(tracker.getSentHierarchy(layout));
+
+        assertLayoutChildren(writeHierarchy());
+    }
+
+    @Test
+    public void invisibleConnector_hierarchyResentWhenVisibleAgain()
+            throws Exception {
+        layout.setVisible(false);
+        writeHierarchy();
+        Assert.assertNull(tracker.getSentHierarchy(layout));
+
+        layout.setVisible(true);
+        assertLayoutChildren(writeHierarchy());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.easymock.EasyMock;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.PaintTarget;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+public class ConnectorTypeWriterTest {
+
+    private UI ui;
+    private Label label;
+    private ConnectorTracker tracker;
+    private PaintTarget paintTarget;
+
+    @Before
+    public void setup() throws Exception {
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        label = new Label("a");
+        ui.setContent(label);
+        ui.setSession(new AlwaysLockedVaadinSession(null));
+        tracker = ui.getConnectorTracker();
+
+        paintTarget = EasyMock.createMock(PaintTarget.class);
+        EasyMock.expect(
+                paintTarget.getTag(EasyMock.anyObject(ClientConnector.class)))
+                .andReturn("0").anyTimes();
+        EasyMock.replay(paintTarget);
+    }
+
+    /**
+     * Writes the types of the dirty connectors and then marks them clean and
+     * initialized like UidlWriter does at the end of a response.
+     */
+    private JSONObject writeTypes() throws Exception {
+        List<ClientConnector> dirtyConnectors = tracker
+                .getDirtyVisibleConnectors();
+        StringWriter writer = new StringWriter();
+        new ConnectorTypeWriter().write(ui, writer, paintTarget);
+
+        tracker.markAllConnectorsClean();
+        for (ClientConnector connector : dirtyConnectors) {
+            tracker.markClientSideInitialized(connector);
+        }
+        return new JSONObject(writer.toString());
+    }
+
+    @Test
+    public void newConnectors_typesSent() throws Exception {
+        JSONObject types = writeTypes();
+        Assert.assertEquals(2, types.length());
+        Assert.assertTrue(types.has(ui.getConnectorId()));
+        Assert.assertTrue(types.has(label.getConnectorId()));
+    }
+
+    @Test
+    public void initializedConnector_typeNotResent() throws Exception {
+        writeTypes();
+
+        label.markAsDirty();
+        Assert.assertEquals(0, writeTypes().length());
+    }
+
+    @Test
+    public void allClientSidesUninitialized_typesResent() throws Exception {
+        writeTypes();
+
+        tracker.markAllConnectorsDirty();
+        tracker.markAllClientSidesUninitialized();
+        Assert.assertEquals(2, writeTypes().length());
+    }
+}
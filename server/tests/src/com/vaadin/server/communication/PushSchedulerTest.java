@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class PushSchedulerTest {
+
+    private static class LatchTask implements Runnable {
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        public void run() {
+            latch.countDown();
+        }
+
+        public boolean hasRun() {
+            return latch.getCount() == 0;
+        }
+
+        public boolean awaitRun() throws InterruptedException {
+            return latch.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void schedule_taskRunAfterDelay() throws InterruptedException {
+        PushScheduler scheduler = new PushScheduler();
+        LatchTask task = new LatchTask();
+        scheduler.schedule(task, 200);
+
+        Assert.assertFalse(task.hasRun());
+        Assert.assertTrue(task.awaitRun());
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void shutdown_pendingTaskRunAndLaterTasksRejected() {
+        PushScheduler scheduler = new PushScheduler();
+        LatchTask task = new LatchTask();
+        scheduler.schedule(task, 60000);
+
+        scheduler.shutdown();
+        Assert.assertTrue(task.hasRun());
+
+        try {
+            scheduler.schedule(new LatchTask(), 0);
+            Assert.fail("Scheduling should fail after shutdown");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void shutdown_tasksOfOtherSchedulerNotAffected()
+            throws InterruptedException {
+        PushScheduler scheduler = new PushScheduler();
+        PushScheduler otherScheduler = new PushScheduler();
+        LatchTask task = new LatchTask();
+        scheduler.schedule(task, 200);
+        otherScheduler.schedule(new LatchTask(), 60000);
+
+        otherScheduler.shutdown();
+        Assert.assertFalse(task.hasRun());
+        Assert.assertTrue(task.awaitRun());
+        scheduler.shutdown();
+    }
+}
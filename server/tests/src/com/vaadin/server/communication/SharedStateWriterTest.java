@@ -0,0 +1,161 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+/**
+ * Compares the output of {@link SharedStateWriter} with the JSONObject that
+ * was previously built of all state changes. Two identical UIs are used since
+ * encoding the state changes updates the diff state of the connectors.
+ */
+public class SharedStateWriterTest {
+
+    private UI streamedUI;
+    private UI referenceUI;
+
+    @Before
+    public void setup() throws Exception {
+        streamedUI = createUI();
+        referenceUI = createUI();
+    }
+
+    private static UI createUI() {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setContent(new CssLayout(new Label("a"), new Label("b")));
+        ui.setSession(new AlwaysLockedVaadinSession(null));
+        return ui;
+    }
+
+    private static CssLayout getLayout(UI ui) {
+        return (CssLayout) ui.getContent();
+    }
+
+    private static Label getLabel(UI ui, int index) {
+        return (Label) getLayout(ui).getComponent(index);
+    }
+
+    /**
+     * Writes the state changes of both UIs, asserts that they are equal and
+     * returns the written changes.
+     */
+    private JSONObject writeAndCompare() throws Exception {
+        StringWriter writer = new StringWriter();
+        List<ClientConnector> dirty = streamedUI.getConnectorTracker()
+                .getDirtyVisibleConnectors();
+        new SharedStateWriter().write(streamedUI, writer);
+        markClean(streamedUI, dirty);
+
+        JSONObject expected = new JSONObject();
+        dirty = referenceUI.getConnectorTracker().getDirtyVisibleConnectors();
+        for (ClientConnector connector : dirty) {
+            JSONObject stateJson = connector.encodeState();
+            if (stateJson != null && stateJson.length() != 0) {
+                expected.put(connector.getConnectorId(), stateJson);
+            }
+        }
+        markClean(referenceUI, dirty);
+
+        JSONObject actual = new JSONObject(writer.toString());
+        assertJsonEquals(expected, actual);
+        return actual;
+    }
+
+    private static void markClean(UI ui, List<ClientConnector> dirty) {
+        ui.getConnectorTracker().markAllConnectorsClean();
+        for (ClientConnector connector : dirty) {
+            ui.getConnectorTracker().markClientSideInitialized(connector);
+        }
+    }
+
+    private static void assertJsonEquals(Object expected, Object actual)
+            throws Exception {
+        if (expected instanceof JSONObject) {
+            Assert.assertTrue(actual instanceof JSONObject);
+            JSONObject expectedObject = (JSONObject) expected;
+            JSONObject actualObject = (JSONObject) actual;
+            Assert.assertEquals(expectedObject.length(), actualObject.length());
+            Iterator<?> keys = expectedObject.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                Assert.assertTrue(actualObject.has(key));
+                assertJsonEquals(expectedObject.get(key), actualObject.get(key));
+            }
+        } else if (expected instanceof JSONArray) {
+            Assert.assertTrue(actual instanceof JSONArray);
+            JSONArray expectedArray = (JSONArray) expected;
+            JSONArray actualArray = (JSONArray) actual;
+            Assert.assertEquals(expectedArray.length(), actualArray.length());
+            for (int i = 0; i < expectedArray.length(); i++) {
+                assertJsonEquals(expectedArray.get(i), actualArray.get(i));
+            }
+        } else {
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void newConnectors_sameAsJSONObject() throws Exception {
+        JSONObject states = writeAndCompare();
+        Assert.assertTrue(states.has(getLabel(streamedUI, 0).getConnectorId()));
+        Assert.assertTrue(states.has(getLabel(streamedUI, 1).getConnectorId()));
+    }
+
+    @Test
+    public void unchangedConnectorsSkipped_sameAsJSONObject()
+            throws Exception {
+        writeAndCompare();
+
+        for (UI ui : new UI[] { streamedUI, referenceUI }) {
+            getLayout(ui).markAsDirty();
+            getLabel(ui, 1).setValue("c");
+        }
+        JSONObject states = writeAndCompare();
+        Assert.assertEquals(1, states.length());
+        Assert.assertTrue(states.has(getLabel(streamedUI, 1).getConnectorId()));
+    }
+
+    @Test
+    public void onlyUnchangedConnectors_emptyObject() throws Exception {
+        writeAndCompare();
+
+        getLayout(streamedUI).markAsDirty();
+        getLabel(streamedUI, 0).markAsDirty();
+        StringWriter writer = new StringWriter();
+        new SharedStateWriter().write(streamedUI, writer);
+        Assert.assertEquals("{}", writer.toString());
+    }
+}
@@ -62,6 +62,8 @@ public class TestClassesSerializable extends TestCase {
             "com\\.vaadin\\.util\\.CurrentInstance\\$1", //
             "com\\.vaadin\\.server\\.communication\\.PushConnection", //
             "com\\.vaadin\\.server\\.communication\\.AtmospherePushConnection", //
+            "com\\.vaadin\\.server\\.communication\\.AtmospherePushConnection\\$Utf8CountingWriter", //
+            "com\\.vaadin\\.server\\.communication\\.UIInitHandler\\$CountingOutputStream", //
             "com\\.vaadin\\.util\\.ConnectorHelper", //
             "com\\.vaadin\\.server\\.VaadinSession\\$FutureAccess", //
             "com\\.vaadin\\.external\\..*", //
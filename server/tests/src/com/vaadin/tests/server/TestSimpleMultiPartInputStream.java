@@ -2,7 +2,9 @@ package com.vaadin.tests.server;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 
 import junit.framework.TestCase;
@@ -102,6 +104,80 @@ public class TestSimpleMultiPartInputStream extends TestCase {
                 "abcabd", "xyz123abc");
     }
 
+    public void testBulkReadWithBoundarySplitAcrossReads() throws Exception {
+        byte[] data = new byte[200000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        String boundary = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write(data);
+        input.write(getFullBoundary(boundary).getBytes());
+        input.write("\r\n".getBytes());
+
+        // Returns at most 7 bytes for each read to split the boundary
+        InputStream slowStream = new FilterInputStream(
+                new ByteArrayInputStream(input.toByteArray())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                slowStream, boundary);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[10000];
+        int bytes;
+        while ((bytes = smpis.read(buffer)) != -1) {
+            result.write(buffer, 0, bytes);
+        }
+        assertTrue(Arrays.equals(data, result.toByteArray()));
+        assertEquals(-1, smpis.read());
+    }
+
+    public void testSingleByteReadsWithBoundarySplitAcrossReads()
+            throws Exception {
+        byte[] data = new byte[200000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        String boundary = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write(data);
+        input.write(getFullBoundary(boundary).getBytes());
+        input.write("\r\n".getBytes());
+
+        // Returns at most 1000 bytes for each read to refill the buffer often
+        InputStream slowStream = new FilterInputStream(
+                new ByteArrayInputStream(input.toByteArray())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+        SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                slowStream, boundary);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        int outbyte;
+        while ((outbyte = smpis.read()) != -1) {
+            result.write(outbyte);
+        }
+        assertTrue(Arrays.equals(data, result.toByteArray()));
+    }
+
+    public void testMissingBoundary() throws Exception {
+        SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                new ByteArrayInputStream("xyz123".getBytes()), "abc");
+        try {
+            smpis.read(new byte[100]);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
     /*
      * TODO fix these tests, they don't do what their method name says.
      */
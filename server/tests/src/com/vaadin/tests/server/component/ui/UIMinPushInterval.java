@@ -0,0 +1,117 @@
+package com.vaadin.tests.server.component.ui;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.communication.PushConnection;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.PushIntervalConfiguration;
+import com.vaadin.ui.UI;
+
+public class UIMinPushInterval {
+
+    private static final int MIN_PUSH_INTERVAL = 500;
+
+    private static class CountingPushConnection implements PushConnection {
+        private final AtomicInteger pushCount = new AtomicInteger();
+
+        @Override
+        public void push() {
+            pushCount.incrementAndGet();
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        public int getPushCount() {
+            return pushCount.get();
+        }
+    }
+
+    private VaadinServletService service;
+    private VaadinSession session;
+    private UI ui;
+    private CountingPushConnection connection;
+
+    @Before
+    public void setup() throws Exception {
+        service = new VaadinServletService(new VaadinServlet(),
+                new MockDeploymentConfiguration());
+        session = new AlwaysLockedVaadinSession(service);
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.getPushConfiguration().setPushMode(PushMode.MANUAL);
+        ((PushIntervalConfiguration) ui.getPushConfiguration())
+                .setMinPushInterval(MIN_PUSH_INTERVAL);
+        ui.setSession(session);
+        connection = new CountingPushConnection();
+        ui.setPushConnection(connection);
+    }
+
+    private void pushChanges() {
+        ui.markAsDirty();
+        ui.push();
+    }
+
+    @Test
+    public void pushesWithinInterval_coalescedIntoOneDeferredPush()
+            throws InterruptedException {
+        pushChanges();
+        Assert.assertEquals(1, connection.getPushCount());
+
+        pushChanges();
+        pushChanges();
+        Assert.assertEquals("Pushes within the interval should be deferred",
+                1, connection.getPushCount());
+
+        session.unlock();
+        long timeout = System.currentTimeMillis() + 5000;
+        while (connection.getPushCount() < 2
+                && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, connection.getPushCount());
+
+        Thread.sleep(2 * MIN_PUSH_INTERVAL);
+        Assert.assertEquals("Deferred pushes should be coalesced", 2,
+                connection.getPushCount());
+        service.getPushScheduler().shutdown();
+    }
+
+    @Test
+    public void shutdown_deferredPushSentAndLaterPushesImmediate() {
+        pushChanges();
+        pushChanges();
+        Assert.assertEquals(1, connection.getPushCount());
+
+        session.unlock();
+        service.getPushScheduler().shutdown();
+        Assert.assertEquals("The deferred push should be run on shutdown", 2,
+                connection.getPushCount());
+
+        session.lock();
+        pushChanges();
+        Assert.assertEquals("Pushes should not be deferred after shutdown", 3,
+                connection.getPushCount());
+        session.unlock();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.util;
+
+import junit.framework.TestCase;
+
+public class ContentEncodingHelperTest extends TestCase {
+
+    public void testEncodingAccepted() {
+        assertTrue(ContentEncodingHelper.isEncodingAccepted("gzip", "gzip"));
+        assertTrue(ContentEncodingHelper.isEncodingAccepted(
+                "deflate, GZIP;q=0.5", "gzip"));
+        assertTrue(ContentEncodingHelper.isEncodingAccepted("*", "gzip"));
+    }
+
+    public void testEncodingNotAccepted() {
+        assertFalse(ContentEncodingHelper.isEncodingAccepted(null, "gzip"));
+        assertFalse(ContentEncodingHelper
+                .isEncodingAccepted("deflate", "gzip"));
+        assertFalse(ContentEncodingHelper.isEncodingAccepted("gzip;q=0",
+                "gzip"));
+        assertFalse(ContentEncodingHelper.isEncodingAccepted(
+                "deflate, gzip; q=0.0", "gzip"));
+        assertFalse(ContentEncodingHelper.isEncodingAccepted("*, gzip;q=0",
+                "gzip"));
+        assertFalse(ContentEncodingHelper.isEncodingAccepted("*;q=0", "gzip"));
+        assertFalse(ContentEncodingHelper.isEncodingAccepted("x-gzip",
+                "gzip"));
+    }
+}
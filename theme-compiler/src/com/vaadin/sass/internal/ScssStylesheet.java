@@ -20,9 +20,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -42,27 +44,36 @@ import com.vaadin.sass.internal.tree.MixinDefNode;
 import com.vaadin.sass.internal.tree.Node;
 import com.vaadin.sass.internal.tree.VariableNode;
 import com.vaadin.sass.internal.tree.controldirective.IfElseDefNode;
-import com.vaadin.sass.internal.visitor.ExtendNodeHandler;
 import com.vaadin.sass.internal.visitor.ImportNodeHandler;
 
 public class ScssStylesheet extends Node {
 
     private static final long serialVersionUID = 3849790204404961608L;
 
-    private static ScssStylesheet mainStyleSheet = null;
+    /*
+     * The stylesheet that is being compiled by the current thread. The state of
+     * a compilation is kept in the compiled stylesheet instead of in static
+     * fields so that different stylesheets can be compiled in parallel by
+     * different threads.
+     */
+    private static final ThreadLocal<ScssStylesheet> mainStyleSheet = new ThreadLocal<ScssStylesheet>();
+
+    private transient HashMap<String, VariableNode> variables;
 
-    private static final HashMap<String, VariableNode> variables = new HashMap<String, VariableNode>();
+    private transient Map<String, MixinDefNode> mixinDefs;
 
-    private static final Map<String, MixinDefNode> mixinDefs = new HashMap<String, MixinDefNode>();
+    private transient HashSet<IfElseDefNode> ifElseDefNodes;
 
-    private static final HashSet<IfElseDefNode> ifElseDefNodes = new HashSet<IfElseDefNode>();
+    private transient HashMap<Node, Node> lastNodeAdded;
 
-    private static HashMap<Node, Node> lastNodeAdded = new HashMap<Node, Node>();
+    private transient Map<String, List<ArrayList<String>>> extendsMap;
 
     private String fileName;
 
     private String charset;
 
+    private List<String> sourceUris = new ArrayList<String>();
+
     /**
      * Read in a file SCSS and parse it into a ScssStylesheet
      * 
@@ -145,7 +156,7 @@ public class ScssStylesheet extends Node {
         return stylesheet;
     }
 
-    private static ScssStylesheetResolver[] resolvers = null;
+    private static volatile ScssStylesheetResolver[] resolvers = null;
 
     public static void setStylesheetResolvers(
             ScssStylesheetResolver... styleSheetResolvers) {
@@ -154,8 +165,10 @@ public class ScssStylesheet extends Node {
     }
 
     public InputSource resolveStylesheet(String identifier) {
+        ScssStylesheetResolver[] resolvers = ScssStylesheet.resolvers;
         if (resolvers == null) {
-            setStylesheetResolvers(new VaadinResolver());
+            resolvers = new ScssStylesheetResolver[] { new VaadinResolver() };
+            ScssStylesheet.resolvers = resolvers;
         }
 
         for (ScssStylesheetResolver resolver : resolvers) {
@@ -163,6 +176,7 @@ public class ScssStylesheet extends Node {
             if (source != null) {
                 File f = new File(source.getURI());
                 setFileName(f.getParent());
+                sourceUris.add(source.getURI());
                 return source;
             }
         }
@@ -176,16 +190,31 @@ public class ScssStylesheet extends Node {
      * @throws Exception
      */
     public void compile() throws Exception {
-        mainStyleSheet = this;
-        mixinDefs.clear();
-        variables.clear();
-        ifElseDefNodes.clear();
-        lastNodeAdded.clear();
-        ExtendNodeHandler.clear();
-        importOtherFiles(this);
-        populateDefinitions(this);
-        traverse(this);
-        removeEmptyBlocks(this);
+        ScssStylesheet previousStyleSheet = mainStyleSheet.get();
+        mainStyleSheet.set(this);
+        variables = new HashMap<String, VariableNode>();
+        mixinDefs = new HashMap<String, MixinDefNode>();
+        ifElseDefNodes = new HashSet<IfElseDefNode>();
+        lastNodeAdded = new HashMap<Node, Node>();
+        extendsMap = new HashMap<String, List<ArrayList<String>>>();
+        try {
+            importOtherFiles(this);
+            populateDefinitions(this);
+            traverse(this);
+            removeEmptyBlocks(this);
+        } finally {
+            // The state is only needed during the compilation
+            variables = null;
+            mixinDefs = null;
+            ifElseDefNodes = null;
+            lastNodeAdded = null;
+            extendsMap = null;
+            if (previousStyleSheet == null) {
+                mainStyleSheet.remove();
+            } else {
+                mainStyleSheet.set(previousStyleSheet);
+            }
+        }
     }
 
     private void importOtherFiles(ScssStylesheet node) {
@@ -243,8 +272,23 @@ public class ScssStylesheet extends Node {
         }
     }
 
+    /**
+     * Returns the stylesheet that is being compiled by the current thread.
+     * 
+     * @return the stylesheet being compiled, or null if the current thread is
+     *         not compiling a stylesheet
+     */
     public static ScssStylesheet get() {
-        return mainStyleSheet;
+        return mainStyleSheet.get();
+    }
+
+    private static ScssStylesheet getCompiling() {
+        ScssStylesheet styleSheet = mainStyleSheet.get();
+        if (styleSheet == null) {
+            throw new IllegalStateException(
+                    "No stylesheet is being compiled by the current thread");
+        }
+        return styleSheet;
     }
 
     @Override
@@ -287,7 +331,7 @@ public class ScssStylesheet extends Node {
 
         // clean up insert point so that processing of the next block will
         // insert after that block
-        lastNodeAdded.remove(originalParent);
+        getLastNodeAdded().remove(originalParent);
 
         // has the node been removed from its parent?
         if (originalParent != null) {
@@ -308,7 +352,7 @@ public class ScssStylesheet extends Node {
      */
     public static Map<String, VariableNode> openVariableScope() {
         @SuppressWarnings("unchecked")
-        HashMap<String, VariableNode> variableScope = (HashMap<String, VariableNode>) variables
+        HashMap<String, VariableNode> variableScope = (HashMap<String, VariableNode>) getCompiling().variables
                 .clone();
         return Collections.unmodifiableMap(variableScope);
     }
@@ -322,6 +366,7 @@ public class ScssStylesheet extends Node {
      */
     public static void closeVariableScope(
             Map<String, VariableNode> originalScope) {
+        HashMap<String, VariableNode> variables = getCompiling().variables;
         variables.clear();
         variables.putAll(originalScope);
     }
@@ -340,19 +385,19 @@ public class ScssStylesheet extends Node {
     }
 
     public static void addVariable(VariableNode node) {
-        variables.put(node.getName(), node);
+        getCompiling().variables.put(node.getName(), node);
     }
 
     public static VariableNode getVariable(String string) {
-        return variables.get(string);
+        return getCompiling().variables.get(string);
     }
 
     public static ArrayList<VariableNode> getVariables() {
-        return new ArrayList<VariableNode>(variables.values());
+        return new ArrayList<VariableNode>(getCompiling().variables.values());
     }
 
     public static MixinDefNode getMixinDefinition(String name) {
-        return mixinDefs.get(name);
+        return getCompiling().mixinDefs.get(name);
     }
 
     public void setFileName(String fileName) {
@@ -364,13 +409,52 @@ public class ScssStylesheet extends Node {
     }
 
     public static HashMap<Node, Node> getLastNodeAdded() {
-        return lastNodeAdded;
+        return getCompiling().lastNodeAdded;
+    }
+
+    /**
+     * Returns the selectors extending other selectors in the stylesheet that
+     * is being compiled by the current thread, keyed by the extended selector.
+     * 
+     * @return the extends map of the current compilation
+     */
+    public static Map<String, List<ArrayList<String>>> getExtendsMap() {
+        return getCompiling().extendsMap;
     }
 
     public static final void warning(String msg) {
         Logger.getLogger(ScssStylesheet.class.getName()).warning(msg);
     }
 
+    /**
+     * Returns the URIs of the source files this stylesheet has been read from.
+     * After the stylesheet has been compiled, the list also contains the
+     * sources of all the stylesheets it imports, directly or indirectly. The
+     * list can be used for finding out whether the compiled stylesheet is out
+     * of date.
+     * 
+     * @return an unmodifiable list of source URIs, as resolved by the
+     *         {@link ScssStylesheetResolver}s
+     */
+    public List<String> getSourceUris() {
+        return Collections.unmodifiableList(sourceUris);
+    }
+
+    /**
+     * Adds source URIs to the list returned by {@link #getSourceUris()}. Used
+     * for recording the sources of imported stylesheets.
+     * 
+     * @param uris
+     *            the source URIs to add
+     */
+    public void addSourceUris(Collection<String> uris) {
+        for (String uri : uris) {
+            if (!sourceUris.contains(uri)) {
+                sourceUris.add(uri);
+            }
+        }
+    }
+
     public String getCharset() {
         return charset;
     }
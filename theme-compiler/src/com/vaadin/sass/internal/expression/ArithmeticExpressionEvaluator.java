@@ -25,12 +25,9 @@ import com.vaadin.sass.internal.parser.LexicalUnitImpl;
 import com.vaadin.sass.internal.parser.SCSSLexicalUnit;
 
 public class ArithmeticExpressionEvaluator {
-    private static ArithmeticExpressionEvaluator instance;
+    private static final ArithmeticExpressionEvaluator instance = new ArithmeticExpressionEvaluator();
 
     public static ArithmeticExpressionEvaluator get() {
-        if (instance == null) {
-            instance = new ArithmeticExpressionEvaluator();
-        }
         return instance;
     }
 
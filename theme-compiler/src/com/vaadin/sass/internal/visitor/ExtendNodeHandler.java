@@ -17,7 +17,6 @@
 package com.vaadin.sass.internal.visitor;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -29,7 +28,6 @@ import com.vaadin.sass.internal.tree.Node;
 import com.vaadin.sass.internal.util.StringUtil;
 
 public class ExtendNodeHandler {
-    private static Map<String, List<ArrayList<String>>> extendsMap = new HashMap<String, List<ArrayList<String>>>();
 
     public static void traverse(ExtendNode node) throws Exception {
         buildExtendsMap(node);
@@ -37,12 +35,14 @@ public class ExtendNodeHandler {
     }
 
     public static void clear() {
-        if (extendsMap != null) {
-            extendsMap.clear();
+        if (ScssStylesheet.get() != null) {
+            ScssStylesheet.getExtendsMap().clear();
         }
     }
 
     private static void modifyTree(Node node) throws Exception {
+        Map<String, List<ArrayList<String>>> extendsMap = ScssStylesheet
+                .getExtendsMap();
         for (Node child : node.getChildren()) {
             if (child instanceof BlockNode) {
                 BlockNode blockNode = (BlockNode) child;
@@ -75,6 +75,8 @@ public class ExtendNodeHandler {
     }
 
     private static void buildExtendsMap(ExtendNode node) {
+        Map<String, List<ArrayList<String>>> extendsMap = ScssStylesheet
+                .getExtendsMap();
         String extendedString = node.getListAsString();
         if (extendsMap.get(extendedString) == null) {
             extendsMap.put(extendedString, new ArrayList<ArrayList<String>>());
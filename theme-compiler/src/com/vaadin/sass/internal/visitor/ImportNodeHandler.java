@@ -79,6 +79,7 @@ public class ImportNodeHandler {
                         }
 
                         traverse(imported);
+                        styleSheet.addSourceUris(imported.getSourceUris());
 
                         String prefix = getUrlPrefix(importNode.getUri());
                         if (prefix != null) {
@@ -51,4 +51,17 @@ public class Imports extends AbstractTestBase {
     public void testCompiler() throws Exception {
         testCompiler(scss, css);
     }
+
+    @Test
+    public void testSourceUris() throws Exception {
+        ScssStylesheet sheet = getStyleSheet(scss);
+        Assert.assertEquals(1, sheet.getSourceUris().size());
+        Assert.assertTrue(sheet.getSourceUris().get(0)
+                .endsWith("imports.scss"));
+
+        sheet.compile();
+        Assert.assertEquals(2, sheet.getSourceUris().size());
+        Assert.assertTrue(sheet.getSourceUris().get(1)
+                .endsWith("_partial-for-import.scss"));
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.sass.testcases.scss;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.sass.AbstractTestBase;
+import com.vaadin.sass.internal.ScssStylesheet;
+
+public class ParallelCompilation extends AbstractTestBase {
+
+    private static final String[][] FILES = new String[][] {
+            { "/scss/variables.scss", "/css/variables.css" },
+            { "/scss/mixins.scss", "/css/mixins.css" },
+            { "/scss/extends.scss", "/css/extends.css" },
+            { "/scss/control-directives.scss", "/css/control-directives.css" } };
+
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void testCompileInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(FILES.length);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (final String[] file : FILES) {
+                    results.add(executor.submit(new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            ScssStylesheet sheet = ScssStylesheet
+                                    .get(getFile(file[0]).getAbsolutePath());
+                            sheet.compile();
+                            return sheet.toString();
+                        }
+                    }));
+                }
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                String[] file = FILES[i % FILES.length];
+                Assert.assertEquals("Unexpected CSS for " + file[0],
+                        getFileContent(file[1]), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testNoStylesheetAfterCompile() throws Exception {
+        getStyleSheet("/scss/variables.scss").compile();
+        Assert.assertNull(ScssStylesheet.get());
+    }
+}